@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of fixed size buffers used to stream files to a response. Applications do not use this class. <br>
+ * Streaming uses one buffer at a time, so memory use does not depend on file size.
+ *
+ * @see SimpleHttpExchange#send(java.io.File, int, boolean)
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+final class BufferPool {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED = 64;
+
+    private static final Queue<byte[]> pool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooled = new AtomicInteger(0);
+
+    private BufferPool(){ }
+
+    /**
+     * Takes a buffer from the pool or creates one if the pool is empty.
+     *
+     * @return buffer
+     *
+     * @see #release(byte[])
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static byte[] take(){
+        final byte[] buffer = pool.poll();
+        if(buffer == null) return new byte[BUFFER_SIZE];
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. The buffer is discarded if the pool is full.
+     *
+     * @param buffer buffer
+     *
+     * @see #take()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static void release(final byte[] buffer){
+        if(pooled.incrementAndGet() <= MAX_POOLED)
+            pool.offer(buffer);
+        else
+            pooled.decrementAndGet();
+    }
+
+    /**
+     * Writes part of a file to a stream using a pooled buffer.
+     *
+     * @param channel file
+     * @param position where to start reading
+     * @param length how many bytes to write
+     * @param OUT stream to write to
+     * @throws IOException failed to read file or write stream
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static void transfer(final FileChannel channel, final long position, final long length, final OutputStream OUT) throws IOException{
+        final byte[] chunk = take();
+        try{
+            final ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            long pos = position, remaining = length;
+            while(remaining > 0){
+                buffer.clear().limit((int) Math.min(chunk.length, remaining));
+                final int read = channel.read(buffer, pos);
+                if(read == -1)
+                    throw new IOException("File ended before " + length + " bytes were sent");
+                OUT.write(chunk, 0, read);
+                pos += read;
+                remaining -= read;
+            }
+        }finally{
+            release(chunk);
+        }
+    }
+
+}
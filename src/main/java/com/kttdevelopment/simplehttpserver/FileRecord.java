@@ -18,47 +18,82 @@
 
 package com.kttdevelopment.simplehttpserver;
 
+import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
 
 /**
- * This class represents on set of headers and parameters in a multipart/form-data that is expected of a file input.
+ * This class represents on set of headers and parameters in a multipart/form-data that is expected of a file input. <br>
+ * Files larger than the exchange's multipart memory threshold are written to a temporary file instead of being kept in memory; the temporary file is deleted when the exchange is closed. Inputs without a file name that are larger than the threshold are also kept in a temporary file, and have no file name.
  *
  * @see MultipartFormData
  * @see Record
  * @see com.kttdevelopment.simplehttpserver.Record.Header
  * @since 4.0.0
- * @version 4.0.0
+ * @version 4.5.0
  * @author Ktt Development
  */
 public class FileRecord extends Record {
 
     private final String fileName, contentType;
-    private final byte[] bytes;
+    private final byte[] bytes; // null if on disk
+    private final Path path;    // null if in memory
+    private final long size;
 
     /**
-     * Creates a record from a map entry. Throws a {@link NullPointerException} if the entry doesn't have all the required fields for a {@link Record#Record(Map.Entry)}; and a filename and Content-Type field.
+     * Creates a file record.
      *
-     * @param entry map entry
+     * @param name form input name
+     * @param headers part headers
+     * @param fileName file name
+     * @param contentType content type of the file
+     * @param bytes file content
      *
-     * @since 4.0.0
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    FileRecord(final String name, final Map<String,Header> headers, final String fileName, final String contentType, final byte[] bytes){
+        super(name, headers, null);
+        this.fileName    = Objects.requireNonNull(fileName);
+        this.contentType = Objects.requireNonNull(contentType);
+        this.bytes       = Objects.requireNonNull(bytes);
+        this.path        = null;
+        this.size        = bytes.length;
+    }
+
+    /**
+     * Creates a file record that is stored in a temporary file.
+     *
+     * @param name form input name
+     * @param headers part headers
+     * @param fileName file name or null if the input is not a file
+     * @param contentType content type of the file
+     * @param path temporary file
+     * @param size file size
+     *
+     * @since 4.5.0
      * @author Ktt Development
      */
-    @SuppressWarnings("rawtypes")
-    FileRecord(final Map.Entry<String,Map> entry){
-        super(entry);
-
-        Header header = Objects.requireNonNull(getHeader("Content-Disposition"));
-        fileName = Objects.requireNonNull(header.getParameter("filename"));
-        header = Objects.requireNonNull(getHeader("Content-Type"));
-        contentType = Objects.requireNonNull(header.getHeaderValue());
-        bytes = getValue().getBytes(StandardCharsets.UTF_8);
+    FileRecord(final String name, final Map<String,Header> headers, final String fileName, final String contentType, final Path path, final long size){
+        super(name, headers, null);
+        this.fileName    = fileName;
+        this.contentType = Objects.requireNonNull(contentType);
+        this.bytes       = null;
+        this.path        = Objects.requireNonNull(path);
+        this.size        = size;
+    }
+
+    @Override
+    final String loadValue(){
+        return new String(getBytes(), StandardCharsets.UTF_8);
     }
 
     /**
      * Returns the file name.
      *
-     * @return file name
+     * @return file name or null if the input is not a file but was too large to keep in memory
      *
      * @since 4.0.0
      * @author Ktt Development
@@ -80,16 +115,94 @@ public class FileRecord extends Record {
     }
 
     /**
-     * Returns the file as bytes.
+     * Returns the file as bytes. If the file is stored in a temporary file then the entire file is read into memory, use {@link #getInputStream()} or {@link #getFileChannel()} for large files.
      *
      * @return file in bytes
+     * @throws UncheckedIOException failed to read temporary file
      *
      * @see #getValue()
+     * @see #getInputStream()
+     * @see #getFileChannel()
      * @since 4.0.0
      * @author Ktt Development
      */
     public final byte[] getBytes(){
-        return bytes;
+        if(bytes != null) return bytes;
+        try{
+            return Files.readAllBytes(path);
+        }catch(final IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the size of the file in bytes.
+     *
+     * @return file size
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final long getSize(){
+        return size;
+    }
+
+    /**
+     * Returns if the file is kept in memory rather than in a temporary file.
+     *
+     * @return if the file is in memory
+     *
+     * @see #getPath()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final boolean isInMemory(){
+        return bytes != null;
+    }
+
+    /**
+     * Returns a new stream to read the file.
+     *
+     * @return file input stream
+     * @throws IOException failed to open temporary file
+     *
+     * @see #getBytes()
+     * @see #getFileChannel()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final InputStream getInputStream() throws IOException{
+        return bytes != null ? new ByteArrayInputStream(bytes) : Files.newInputStream(path);
+    }
+
+    /**
+     * Returns the temporary file the file is stored in or null if it is kept in memory. The file is deleted when the exchange is closed.
+     *
+     * @return temporary file
+     *
+     * @see #isInMemory()
+     * @see #getFileChannel()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final Path getPath(){
+        return path;
+    }
+
+    /**
+     * Opens a read only channel to the temporary file or returns null if the file is kept in memory.
+     *
+     * @return file channel
+     * @throws IOException failed to open temporary file
+     *
+     * @see #isInMemory()
+     * @see #getPath()
+     * @see #getInputStream()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final FileChannel getFileChannel() throws IOException{
+        return path != null ? FileChannel.open(path, StandardOpenOption.READ) : null;
     }
 
     @Override
@@ -99,7 +212,7 @@ public class FileRecord extends Record {
             "name"          + '=' + '\'' + getName() + '\''                     + ", " +
             "fileName"      + '=' + '\'' + fileName + '\''                      + ", " +
             "contentType"   + '=' + '\'' + contentType + '\''                   + ", " +
-            "value"         + '=' + '\'' + Arrays.toString(bytes) + '\''     + ", " +
+            "value"         + '=' + '\'' + (bytes != null ? Arrays.toString(bytes) : path) + '\''  + ", " +
             "headers"       + '=' + getHeaders() +
             '}';
     }
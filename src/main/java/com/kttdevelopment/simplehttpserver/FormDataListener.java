@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Receives the fields of a <code>multipart/form-data</code> or <code>application/x-www-form-urlencoded</code> request as they are read from the request body. <br>
+ * Each field calls {@link #onFieldStart(String, Map)}, then {@link #onFieldData(byte[], int, int)} for every chunk of content, then {@link #onFieldEnd()}. Nothing is buffered beyond a single chunk.
+ *
+ * @see SimpleHttpExchange#readFormData(FormDataListener)
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+public interface FormDataListener {
+
+    /**
+     * Called when a new field starts.
+     *
+     * @param name form input name
+     * @param headers part headers, empty for <code>application/x-www-form-urlencoded</code>
+     * @throws IOException exception to stop reading
+     *
+     * @see Record.Header
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    default void onFieldStart(final String name, final Map<String,Record.Header> headers) throws IOException{ }
+
+    /**
+     * Called for each chunk of field content. The array is reused after this method returns.
+     *
+     * @param data content buffer
+     * @param offset start of the chunk in the buffer
+     * @param length length of the chunk
+     * @throws IOException exception to stop reading
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    void onFieldData(final byte[] data, final int offset, final int length) throws IOException;
+
+    /**
+     * Called when the current field ends.
+     *
+     * @throws IOException exception to stop reading
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    default void onFieldEnd() throws IOException{ }
+
+}
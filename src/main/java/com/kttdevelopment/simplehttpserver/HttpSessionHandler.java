@@ -27,7 +27,7 @@ import java.util.*;
  * This class assigns {@link HttpSession} to every client.
  *
  * @since 03.03.00
- * @version 03.05.00
+ * @version 4.5.0
  * @author Ktt Development
  */
 public class HttpSessionHandler {
@@ -95,20 +95,8 @@ public class HttpSessionHandler {
         final String sessionId;
         final HttpSession session;
 
-        @SuppressWarnings("SpellCheckingInspection")
-        final String rcookies = exchange.getRequestHeaders().getFirst("Cookie");
-        final Map<String,String> cookies = new HashMap<>();
-
-        if(rcookies != null && !rcookies.isEmpty()){
-            final String[] pairs = rcookies.split("; ");
-            for(final String pair : pairs){
-                final String[] value = pair.split("=");
-                cookies.put(value[0], value[1]);
-            }
-        }
-
         final String setSession = getSetSession(exchange.getResponseHeaders());
-        sessionId = setSession != null ? setSession : cookies.get(cookie);
+        sessionId = setSession != null ? setSession : RequestCookies.get(exchange, cookie);
 
         synchronized(this){
             if(!sessions.containsKey(sessionId)){
@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A single pass multipart/form-data parser that reads parts directly from the request stream. Applications do not use this class. <br>
+ * Part content is never decoded, so binary files are kept as is, and only one part is read at a time.
+ *
+ * @see MultipartFormData
+ * @see Record
+ * @see FileRecord
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+final class MultipartParser {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final InputStream IN;
+    private final byte[] delimiter; // CRLF "--" boundary
+    private final byte[] buffer;
+    private int pos = 0, limit = 0;
+    private boolean eof = false;    // underlying stream has no more bytes
+    private boolean closed = false; // close delimiter was read
+
+    private PartInputStream current;
+
+    /**
+     * Creates a multipart parser.
+     *
+     * @param IN request body
+     * @param boundary multipart boundary
+     *
+     * @see #getBoundary(String)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    MultipartParser(final InputStream IN, final String boundary){
+        this.IN   = IN;
+        delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        buffer    = new byte[Math.max(BUFFER_SIZE, delimiter.length * 2)];
+        // the first delimiter does not need to be preceded by a line break
+        buffer[limit++] = '\r';
+        buffer[limit++] = '\n';
+        current = new PartInputStream(); // preamble
+    }
+
+    /**
+     * Returns the boundary from a multipart content type or null if there is none.
+     *
+     * @param contentType content type header
+     * @return boundary
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static String getBoundary(final String contentType){
+        if(contentType == null || !contentType.regionMatches(true, 0, "multipart/", 0, 10)) return null;
+        final String boundary = parseHeader("Content-Type", contentType).getParameter("boundary");
+        return boundary == null || boundary.isEmpty() ? null : boundary;
+    }
+
+//
+
+    /**
+     * Returns the next part in the body or null if there are no more parts. Any unread content in the previous part is skipped.
+     *
+     * @return next part
+     * @throws IOException failed to read request body
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final Part next() throws IOException{
+        if(current != null){
+            current.skipRemaining();
+            current = null;
+        }
+        if(closed) return null;
+
+        final Map<String,Record.Header> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        String line;
+        while((line = readLine()) != null && !line.isEmpty()){
+            final int colon = line.indexOf(':');
+            if(colon > 0){
+                final String name = line.substring(0, colon).trim();
+                headers.put(name, parseHeader(name, line.substring(colon + 1)));
+            }
+        }
+        if(line == null){ // body ended before part content
+            closed = true;
+            return null;
+        }
+        return new Part(Collections.unmodifiableMap(headers), current = new PartInputStream());
+    }
+
+    /**
+     * Represents one part of the multipart body; the content stream is only valid until the next part is read.
+     *
+     * @since 4.5.0
+     * @version 4.5.0
+     * @author Ktt Development
+     */
+    static final class Part {
+
+        private final Map<String,Record.Header> headers;
+        private final InputStream content;
+
+        private Part(final Map<String,Record.Header> headers, final InputStream content){
+            this.headers = headers;
+            this.content = content;
+        }
+
+        final Map<String,Record.Header> getHeaders(){
+            return headers;
+        }
+
+        // form input name, from the content disposition
+        final String getName(){
+            final Record.Header disposition = headers.get("Content-Disposition");
+            return disposition != null ? disposition.getParameter("name") : null;
+        }
+
+        // file name, from the content disposition
+        final String getFileName(){
+            final Record.Header disposition = headers.get("Content-Disposition");
+            return disposition != null ? disposition.getParameter("filename") : null;
+        }
+
+        final String getContentType(){
+            final Record.Header contentType = headers.get("Content-Type");
+            return contentType != null ? contentType.getHeaderValue() : null;
+        }
+
+        final InputStream getContent(){
+            return content;
+        }
+
+    }
+
+//
+
+    // parses a header value with parameters, ex: form-data; name="key"; filename="file.txt"
+    static Record.Header parseHeader(final String name, final String raw){
+        final Map<String,String> params = new LinkedHashMap<>();
+        final int len = raw.length();
+
+        int i = raw.indexOf(';');
+        final String value = (i == -1 ? raw : raw.substring(0, i)).trim();
+
+        while(i != -1 && i < len){
+            i++; // skip ';'
+            final int eq = raw.indexOf('=', i);
+            final int semi = raw.indexOf(';', i);
+            if(eq == -1 || (semi != -1 && semi < eq)){ // parameter without a value
+                i = semi;
+                continue;
+            }
+            final String key = raw.substring(i, eq).trim().toLowerCase(Locale.ROOT);
+            i = eq + 1;
+            while(i < len && raw.charAt(i) == ' ') i++;
+
+            final String val;
+            if(i < len && raw.charAt(i) == '"'){ // quoted value
+                final StringBuilder OUT = new StringBuilder();
+                for(i++; i < len && raw.charAt(i) != '"'; i++){
+                    final char c = raw.charAt(i);
+                    if(c == '\\' && i + 1 < len && (raw.charAt(i + 1) == '"' || raw.charAt(i + 1) == '\\'))
+                        OUT.append(raw.charAt(++i));
+                    else
+                        OUT.append(c);
+                }
+                val = OUT.toString();
+                i = raw.indexOf(';', i);
+            }else{
+                final int end = raw.indexOf(';', i);
+                val = (end == -1 ? raw.substring(i) : raw.substring(i, end)).trim();
+                i = end;
+            }
+            if(!key.isEmpty())
+                params.put(key, val);
+        }
+        return new Record.Header(name, value, params);
+    }
+
+    // reads a header line, without the line break
+    private String readLine() throws IOException{
+        while(true){
+            for(int i = pos; i < limit - 1; i++){
+                if(buffer[i] == '\r' && buffer[i + 1] == '\n'){
+                    final String line = new String(buffer, pos, i - pos, StandardCharsets.UTF_8);
+                    pos = i + 2;
+                    return line;
+                }
+            }
+            if(eof){
+                if(pos == limit) return null;
+                final String line = new String(buffer, pos, limit - pos, StandardCharsets.UTF_8);
+                pos = limit;
+                return line;
+            }
+            if(pos == 0 && limit == buffer.length)
+                throw new IOException("Multipart header exceeds " + buffer.length + " bytes");
+            fill();
+        }
+    }
+
+    // moves unread bytes to the front of the buffer and reads more from the stream
+    private void fill() throws IOException{
+        if(pos > 0){
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        final int read = IN.read(buffer, limit, buffer.length - limit);
+        if(read == -1)
+            eof = true;
+        else
+            limit += read;
+    }
+
+    // index of the delimiter in the buffer or -1
+    private int indexOfDelimiter(){
+        final byte first = delimiter[0];
+        final int last = limit - delimiter.length;
+        outer:
+        for(int i = pos; i <= last; i++){
+            if(buffer[i] != first) continue;
+            for(int j = 1; j < delimiter.length; j++)
+                if(buffer[i + j] != delimiter[j])
+                    continue outer;
+            return i;
+        }
+        return -1;
+    }
+
+    // reads what follows a delimiter: '--' for the last part or a line break for the next part
+    private void readDelimiterEnd() throws IOException{
+        while(limit - pos < 2 && !eof) fill();
+        if(limit - pos >= 2 && buffer[pos] == '-' && buffer[pos + 1] == '-'){
+            closed = true;
+            pos += 2;
+            return;
+        }
+        while(true){ // skip transport padding and the line break
+            if(pos == limit){
+                if(eof){
+                    closed = true;
+                    return;
+                }
+                fill();
+                continue;
+            }
+            final byte b = buffer[pos++];
+            if(b == '\n') return;
+        }
+    }
+
+    /**
+     * Reads the content of a single part, ending before the next delimiter.
+     *
+     * @since 4.5.0
+     * @version 4.5.0
+     * @author Ktt Development
+     */
+    private final class PartInputStream extends InputStream {
+
+        private boolean ended = false;
+
+        // number of bytes that are part content, or -1 if the part has ended
+        private int available0() throws IOException{
+            while(!ended){
+                if(current != this) throw new IOException("Part stream is no longer valid");
+                final int index = indexOfDelimiter();
+                if(index == pos){
+                    pos += delimiter.length;
+                    readDelimiterEnd();
+                    ended = true;
+                }else if(index != -1){
+                    return index - pos;
+                }else{
+                    // the end of the buffer may be the start of a delimiter
+                    final int safe = limit - pos - (delimiter.length - 1);
+                    if(safe > 0)
+                        return safe;
+                    else if(eof){ // body ended without a close delimiter, the part ends once the rest of the buffer is read
+                        closed = true;
+                        if(limit > pos)
+                            return limit - pos;
+                        ended = true;
+                    }else
+                        fill();
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public final int read() throws IOException{
+            return available0() == -1 ? -1 : buffer[pos++] & 0xFF;
+        }
+
+        @Override
+        public final int read(final byte[] b, final int off, final int len) throws IOException{
+            Objects.checkFromIndexSize(off, len, b.length);
+            if(len == 0) return 0;
+            final int available = available0();
+            if(available == -1) return -1;
+            final int read = Math.min(available, len);
+            System.arraycopy(buffer, pos, b, off, read);
+            pos += read;
+            return read;
+        }
+
+        private void skipRemaining() throws IOException{
+            int available;
+            while((available = available0()) != -1)
+                pos += available;
+        }
+
+    }
+
+}
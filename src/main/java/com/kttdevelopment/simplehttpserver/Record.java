@@ -27,37 +27,29 @@ import java.util.*;
  * @see FileRecord
  * @see Header
  * @since 4.0.0
- * @version 4.0.0
+ * @version 4.5.0
  * @author Ktt Development
  */
 public class Record {
 
     private final Map<String,Header> headers;
-    private final String name, value;
+    private final String name;
+    private String value;
 
     /**
-     * Creates a record from a map entry. Throws a {@link NullPointerException} if the entry doesn't have a: header-name, header-value, and parameters field.
+     * Creates a record.
      *
-     * @param entry map entry
+     * @param name form input name
+     * @param headers part headers
+     * @param value value, or null if the value is decoded when it is first used
      *
-     * @since 4.0.0
+     * @since 4.5.0
      * @author Ktt Development
      */
-    @SuppressWarnings({"rawtypes", "unchecked"})
-    Record(final Map.Entry<String,Map> entry){
-        name  = Objects.requireNonNull(entry.getKey());
-        value = Objects.requireNonNull(entry.getValue().get("value").toString());
-
-        final Map<String,Header> headers = new HashMap<>();
-        Objects.requireNonNull((Map<String,Map>) entry.getValue().get("headers")).forEach((k, v) -> headers.put(
-            k,
-            new Header(
-                Objects.requireNonNull(v.get("header-name")).toString(),
-                Objects.requireNonNull(v.get("header-value")).toString(),
-                (Map) Objects.requireNonNull(v.get("parameters"))
-            )
-        ));
+    Record(final String name, final Map<String,Header> headers, final String value){
+        this.name    = Objects.requireNonNull(name);
         this.headers = Collections.unmodifiableMap(headers);
+        this.value   = value;
     }
 
     /**
@@ -110,15 +102,22 @@ public class Record {
      * @author Ktt Development
      */
     public final String getValue(){
+        if(value == null)
+            value = loadValue();
         return value;
     }
 
+    // records that hold bytes decode their value only when it is used
+    String loadValue(){
+        return "";
+    }
+
     @Override
     public String toString(){
         return
             "Record"    + '{' +
             "name"      + '=' + '\'' + name + '\''  + ", " +
-            "value"     + '=' + '\'' + value + '\'' + ", " +
+            "value"     + '=' + '\'' + getValue() + '\'' + ", " +
             "headers"   + '=' + headers +
             '}';
     }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the request body as chunks of bytes. Applications do not use this class. <br>
+ * Chunks are only read from the body when the subscriber requests them, on the thread that requested them. Only one subscriber is allowed.
+ *
+ * @see SimpleHttpExchange#getRequestBodyPublisher()
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+final class RequestBodyPublisher implements Flow.Publisher<ByteBuffer> {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final InputStream IN;
+    private final AtomicBoolean subscribed = new AtomicBoolean(false);
+
+    /**
+     * Creates a publisher for a request body.
+     *
+     * @param IN request body
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    RequestBodyPublisher(final InputStream IN){
+        this.IN = IN;
+    }
+
+    @Override
+    public final void subscribe(final Flow.Subscriber<? super ByteBuffer> subscriber){
+        if(subscribed.getAndSet(true)){
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public final void request(final long n){ }
+
+                @Override
+                public final void cancel(){ }
+            });
+            subscriber.onError(new IllegalStateException("Request body can only be subscribed to once"));
+        }else{
+            subscriber.onSubscribe(new Subscription(subscriber));
+        }
+    }
+
+    private final class Subscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong(0);
+        private volatile boolean done = false;
+
+        private Subscription(final Flow.Subscriber<? super ByteBuffer> subscriber){
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public final void request(final long n){
+            if(done) return;
+            if(n <= 0){
+                done = true;
+                subscriber.onError(new IllegalArgumentException("Requested items must be positive"));
+                return;
+            }
+            // only the thread that raised demand from zero reads, others only add to the demand
+            if(demand.getAndAccumulate(n, (was, add) -> was + add < 0 ? Long.MAX_VALUE : was + add) != 0) return;
+
+            long emitted = 0;
+            while(true){
+                final long requested = demand.get();
+                while(emitted != requested){
+                    if(done) return;
+                    final byte[] chunk = new byte[CHUNK_SIZE];
+                    final int read;
+                    try{
+                        read = IN.read(chunk);
+                    }catch(final IOException e){
+                        done = true;
+                        subscriber.onError(e);
+                        return;
+                    }
+                    if(read == -1){
+                        done = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext(ByteBuffer.wrap(chunk, 0, read).asReadOnlyBuffer());
+                    emitted++;
+                }
+                if(demand.addAndGet(-emitted) == 0) return;
+                emitted = 0;
+            }
+        }
+
+        @Override
+        public final void cancel(){
+            done = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.util.*;
+
+/**
+ * Parses the <code>Cookie</code> request header. Applications do not use this class. <br>
+ * {@link SimpleHttpExchange} parses the cookies once and keeps them for the request; the session handler only looks up the session cookie, so it reads that pair without parsing the rest.
+ *
+ * @see SimpleHttpExchange#getCookies()
+ * @see HttpSessionHandler#getSession(HttpExchange)
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+final class RequestCookies {
+
+    private RequestCookies(){ }
+
+    /**
+     * Returns the cookies sent with an exchange.
+     *
+     * @param exchange http exchange
+     * @return unmodifiable map of cookie names to values
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static Map<String,String> parse(final HttpExchange exchange){
+        final List<String> headers = exchange.getRequestHeaders().get("Cookie");
+        if(headers == null || headers.isEmpty())
+            return Collections.emptyMap();
+
+        final Map<String,String> OUT = new HashMap<>();
+        for(final String header : headers)
+            if(header != null)
+                parse(header, OUT);
+        return Collections.unmodifiableMap(OUT);
+    }
+
+    /**
+     * Returns the value of a cookie sent with an exchange. If the cookie is sent more than once the last value is returned, the same as {@link #parse(HttpExchange)}.
+     *
+     * @param exchange http exchange
+     * @param name cookie name
+     * @return cookie value or null if it was not sent
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static String get(final HttpExchange exchange, final String name){
+        final List<String> headers = exchange.getRequestHeaders().get("Cookie");
+        if(headers == null || headers.isEmpty())
+            return null;
+
+        String value = null;
+        for(final String header : headers){
+            if(header == null) continue;
+            final String found = find(header, name);
+            if(found != null) value = found;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a cookie header into a map. Only the name and value of each pair are copied out of the header; values may contain <code>=</code>.
+     *
+     * @param header cookie header, ex: <code>a=b; c=d</code>
+     * @param OUT map to add cookies to
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static void parse(final String header, final Map<String,String> OUT){
+        scan(header, null, OUT);
+    }
+
+    /**
+     * Returns the value of a cookie in a cookie header.
+     *
+     * @param header cookie header, ex: <code>a=b; c=d</code>
+     * @param name cookie name
+     * @return last value of the cookie or null if it is not in the header
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static String find(final String header, final String name){
+        return scan(header, name, null);
+    }
+
+    // adds every pair to the map, or only returns the value of the named pair if the map is null
+    private static String scan(final String header, final String name, final Map<String,String> OUT){
+        final int len = header.length();
+        String value = null;
+        int i = 0;
+        while(i < len){
+            int end = header.indexOf(';', i);
+            if(end == -1) end = len;
+
+            // trim whitespace around the pair
+            int start = i, stop = end;
+            while(start < stop && header.charAt(start) == ' ') start++;
+            while(stop > start && header.charAt(stop - 1) == ' ') stop--;
+
+            final int eq = header.indexOf('=', start);
+            if(eq != -1 && eq < stop && eq > start){ // pairs without a name or value are ignored
+                int nameEnd = eq, valueStart = eq + 1;
+                while(nameEnd > start && header.charAt(nameEnd - 1) == ' ') nameEnd--;
+                while(valueStart < stop && header.charAt(valueStart) == ' ') valueStart++;
+                if(OUT != null)
+                    OUT.put(header.substring(start, nameEnd), header.substring(valueStart, stop));
+                else if(nameEnd - start == name.length() && header.startsWith(name, start))
+                    value = header.substring(valueStart, stop);
+            }
+            i = end + 1;
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,507 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver;
+
+import com.sun.net.httpserver.Headers;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Determines when a response sent with compression is compressed. A response is only compressed if the client accepts <code>gzip</code> or <code>deflate</code>, it is at least the minimum size, and its content type is compressible.
+ *
+ * @see SimpleHttpExchange#setResponseCompression(ResponseCompression)
+ * @see Builder
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+public final class ResponseCompression {
+
+    /**
+     * The content types that are compressed by default: any <code>text/*</code> type, any <code>+json</code> or <code>+xml</code> type, and these types.
+     *
+     * @since 4.5.0
+     */
+    public static final Set<String> DEFAULT_MIME_TYPES = Set.of(
+        "application/javascript",
+        "application/json",
+        "application/xml",
+        "application/xhtml+xml",
+        "application/x-javascript",
+        "application/x-www-form-urlencoded",
+        "application/wasm",
+        "image/svg+xml",
+        "image/x-icon",
+        "font/ttf",
+        "font/otf"
+    );
+
+    private static final ResponseCompression DEFAULT = new Builder().build();
+
+    // deflaters are expensive to create, so each thread reuses its own; a deflater is taken out while in use
+    private static final ThreadLocal<Deflater> gzipDeflater = new ThreadLocal<>();
+    private static final ThreadLocal<Deflater> zlibDeflater = new ThreadLocal<>();
+
+    private static final int GZIP_MAGIC = 0x8B1F;
+
+    private final int minimumSize;
+    private final int compressionLevel;
+    private final Set<String> mimeTypes;
+
+    private ResponseCompression(final int minimumSize, final int compressionLevel, final Set<String> mimeTypes){
+        this.minimumSize      = minimumSize;
+        this.compressionLevel = compressionLevel;
+        this.mimeTypes        = mimeTypes;
+    }
+
+    /**
+     * Returns the default compression: 1 kilobyte minimum size, the default compression level, and {@link #DEFAULT_MIME_TYPES}.
+     *
+     * @return default compression
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public static ResponseCompression getDefault(){
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the smallest response that will be compressed.
+     *
+     * @return minimum size in bytes
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final int getMinimumSize(){
+        return minimumSize;
+    }
+
+    /**
+     * Returns the compression level.
+     *
+     * @return compression level, from 0 to 9 or -1 for the default level
+     *
+     * @see Deflater#setLevel(int)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final int getCompressionLevel(){
+        return compressionLevel;
+    }
+
+    /**
+     * Returns the compressible content types, besides any <code>text/*</code>, <code>+json</code>, or <code>+xml</code> type.
+     *
+     * @return compressible content types
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final Set<String> getMimeTypes(){
+        return mimeTypes;
+    }
+
+//
+
+    /**
+     * Returns if a content type should be compressed. A response without a content type is compressed.
+     *
+     * @param contentType content type header, may include parameters
+     * @return if the content type is compressible
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final boolean isCompressible(final String contentType){
+        if(contentType == null) return true;
+        final int semi = contentType.indexOf(';');
+        final String mime = (semi == -1 ? contentType : contentType.substring(0, semi)).trim().toLowerCase(Locale.ROOT);
+        return
+            mime.startsWith("text/") ||
+            mime.endsWith("+json") ||
+            mime.endsWith("+xml") ||
+            mimeTypes.contains(mime);
+    }
+
+    /**
+     * Returns the content coding to use for a response, or null if it should not be compressed.
+     *
+     * @param requestHeaders request headers
+     * @param responseHeaders response headers
+     * @param length response length
+     * @return <code>gzip</code>, <code>deflate</code>, or null
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final String getEncoding(final Headers requestHeaders, final Headers responseHeaders, final long length){
+        if(length < minimumSize || responseHeaders.containsKey("Content-Encoding") || !isCompressible(responseHeaders.getFirst("Content-Type")))
+            return null;
+        return negotiate(requestHeaders.get("Accept-Encoding"));
+    }
+
+    /**
+     * Picks <code>gzip</code> or <code>deflate</code> using the <code>Accept-Encoding</code> q-values, preferring <code>gzip</code> if they are equal. A request without the header is not compressed.
+     *
+     * @param acceptEncoding accept encoding headers
+     * @return <code>gzip</code>, <code>deflate</code>, or null if neither is accepted
+     *
+     * @see #getPreferredEncoding(List, List)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static String negotiate(final List<String> acceptEncoding){
+        return getPreferredEncoding(acceptEncoding, List.of("gzip", "deflate"));
+    }
+
+    /**
+     * Returns the content coding the client prefers out of the available codings, using the <code>Accept-Encoding</code> q-values. Codings with the same q-value are preferred in the order they are listed. A request without the header only accepts the unencoded response, since many clients do not send it and can not decode a coding they did not ask for.
+     *
+     * @param acceptEncoding accept encoding headers
+     * @param encodings available content codings, ex: <code>br</code>, <code>gzip</code>
+     * @return preferred coding or null if none are accepted or the header is missing
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public static String getPreferredEncoding(final List<String> acceptEncoding, final List<String> encodings){
+        if(encodings.isEmpty() || acceptEncoding == null || acceptEncoding.isEmpty()) return null;
+
+        final double[] q = new double[encodings.size()];
+        Arrays.fill(q, -1);
+        double any = -1;
+        for(final String header : acceptEncoding){
+            if(header == null) continue;
+            for(final String element : header.split(",")){
+                final int semi = element.indexOf(';');
+                String coding = (semi == -1 ? element : element.substring(0, semi)).trim().toLowerCase(Locale.ROOT);
+                final double value = semi == -1 ? 1 : parseQ(element.substring(semi + 1));
+                if(coding.equals("*")){
+                    any = Math.max(any, value);
+                    continue;
+                }else if(coding.equals("x-gzip")){
+                    coding = "gzip";
+                }
+                final int index = encodings.indexOf(coding);
+                if(index != -1)
+                    q[index] = Math.max(q[index], value);
+            }
+        }
+
+        String preferred = null;
+        double best = 0;
+        for(int i = 0; i < q.length; i++){
+            final double value = q[i] == -1 ? any : q[i]; // codings that are not listed take the value of '*'
+            if(value > best){
+                best = value;
+                preferred = encodings.get(i);
+            }
+        }
+        return preferred;
+    }
+
+    /**
+     * Adds <code>Accept-Encoding</code> to the <code>Vary</code> response header, so caches store each content coding separately. Nothing is added if the header already lists it or <code>*</code>.
+     *
+     * @param responseHeaders response headers
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public static void addVary(final Headers responseHeaders){
+        final List<String> vary = responseHeaders.get("Vary");
+        if(vary != null)
+            for(final String value : vary)
+                for(final String field : value.split(","))
+                    if(field.trim().equalsIgnoreCase("Accept-Encoding") || field.trim().equals("*"))
+                        return;
+        responseHeaders.add("Vary", "Accept-Encoding");
+    }
+
+    // q value of an accept encoding parameter list, ex: q=0.5
+    private static double parseQ(final String params){
+        for(final String param : params.split(";")){
+            final String p = param.trim();
+            if(p.length() > 2 && (p.charAt(0) == 'q' || p.charAt(0) == 'Q') && p.charAt(1) == '='){
+                try{
+                    final double q = Double.parseDouble(p.substring(2).trim());
+                    return q < 0 ? 0 : Math.min(q, 1);
+                }catch(final NumberFormatException ignored){
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Compresses a response using the compression level.
+     *
+     * @param bytes response
+     * @param encoding <code>gzip</code> or <code>deflate</code>
+     * @return compressed response
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final byte[] compress(final byte[] bytes, final String encoding){
+        final ByteArrayOutputStream OUT = new ByteArrayOutputStream(Math.max(64, bytes.length / 2));
+        try(final OutputStream compressed = compressor(OUT, encoding)){
+            compressed.write(bytes);
+        }catch(final IOException e){ // not thrown by a byte array stream
+            throw new UncheckedIOException(e);
+        }
+        return OUT.toByteArray();
+    }
+
+    /**
+     * Returns a stream that compresses into another stream, using the deflater of the current thread. Closing it closes the underlying stream.
+     *
+     * @param OUT stream to write compressed bytes to
+     * @param encoding <code>gzip</code> or <code>deflate</code>
+     * @return compressing stream
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final OutputStream compressor(final OutputStream OUT, final String encoding){
+        return new CompressorOutputStream(OUT, "gzip".equals(encoding), compressionLevel);
+    }
+
+    /**
+     * Writes deflated bytes in the gzip or zlib format using a reusable deflater.
+     *
+     * @since 4.5.0
+     * @version 4.5.0
+     * @author Ktt Development
+     */
+    private static final class CompressorOutputStream extends FilterOutputStream {
+
+        private final boolean gzip;
+        private final ThreadLocal<Deflater> local;
+        private final Deflater deflater;
+        private final CRC32 crc;
+        private final byte[] buffer = new byte[8 * 1024];
+        private boolean headerWritten = false;
+        private boolean closed = false;
+
+        private CompressorOutputStream(final OutputStream OUT, final boolean gzip, final int level){
+            super(OUT);
+            this.gzip = gzip;
+            local     = gzip ? gzipDeflater : zlibDeflater;
+            final Deflater cached = local.get();
+            if(cached != null){
+                local.set(null);
+                deflater = cached;
+            }else{ // first use on this thread or the thread's deflater is already in use
+                deflater = new Deflater(level, gzip);
+            }
+            deflater.setLevel(level);
+            crc = gzip ? new CRC32() : null;
+        }
+
+        private void writeHeader() throws IOException{
+            out.write(new byte[]{
+                (byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8),
+                Deflater.DEFLATED, 0, // flags
+                0, 0, 0, 0, // modification time
+                0, 0 // extra flags, operating system
+            });
+        }
+
+        @Override
+        public final void write(final int b) throws IOException{
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public final void write(final byte[] b, final int off, final int len) throws IOException{
+            if(closed) throw new IOException("Stream closed");
+            Objects.checkFromIndexSize(off, len, b.length);
+            if(len == 0) return;
+            if(gzip){
+                if(!headerWritten){
+                    writeHeader();
+                    headerWritten = true;
+                }
+                crc.update(b, off, len);
+            }
+            deflater.setInput(b, off, len);
+            while(!deflater.needsInput())
+                deflate();
+        }
+
+        private void deflate() throws IOException{
+            final int len = deflater.deflate(buffer, 0, buffer.length);
+            if(len > 0)
+                out.write(buffer, 0, len);
+        }
+
+        @Override
+        public final void close() throws IOException{
+            if(closed) return;
+            closed = true;
+            try{
+                if(gzip && !headerWritten)
+                    writeHeader();
+                deflater.finish();
+                while(!deflater.finished())
+                    deflate();
+                if(gzip){
+                    writeInt((int) crc.getValue());
+                    writeInt((int) deflater.getBytesRead());
+                }
+            }finally{
+                deflater.reset();
+                local.set(deflater);
+                out.close();
+            }
+        }
+
+        // little endian
+        private void writeInt(final int i) throws IOException{
+            out.write(new byte[]{(byte) i, (byte) (i >> 8), (byte) (i >> 16), (byte) (i >> 24)});
+        }
+
+    }
+
+//
+
+    @Override
+    public String toString(){
+        return
+            "ResponseCompression"   + '{' +
+            "minimumSize"           + '=' + minimumSize         + ", " +
+            "compressionLevel"      + '=' + compressionLevel    + ", " +
+            "mimeTypes"             + '=' + mimeTypes           +
+            '}';
+    }
+
+    /**
+     * Builder class for {@link ResponseCompression}.
+     *
+     * @see ResponseCompression
+     * @since 4.5.0
+     * @version 4.5.0
+     * @author Ktt Development
+     */
+    public static class Builder {
+
+        private int minimumSize = 1024;
+        private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        private final Set<String> mimeTypes = new HashSet<>(DEFAULT_MIME_TYPES);
+
+        /**
+         * Creates a compression builder with the default settings.
+         *
+         * @see ResponseCompression#getDefault()
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        public Builder(){ }
+
+        /**
+         * Sets the smallest response that will be compressed. The default is 1 kilobyte.
+         *
+         * @param minimumSize minimum size in bytes
+         * @return compression builder
+         * @throws IllegalArgumentException if the size is negative
+         *
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        public final Builder setMinimumSize(final int minimumSize){
+            if(minimumSize < 0)
+                throw new IllegalArgumentException("Minimum size can not be negative");
+            this.minimumSize = minimumSize;
+            return this;
+        }
+
+        /**
+         * Sets the compression level.
+         *
+         * @param compressionLevel compression level, from 0 to 9 or -1 for the default level
+         * @return compression builder
+         * @throws IllegalArgumentException if the level is invalid
+         *
+         * @see Deflater#BEST_SPEED
+         * @see Deflater#BEST_COMPRESSION
+         * @see Deflater#DEFAULT_COMPRESSION
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        public final Builder setCompressionLevel(final int compressionLevel){
+            if(compressionLevel < -1 || compressionLevel > 9)
+                throw new IllegalArgumentException("Compression level must be between -1 and 9");
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        /**
+         * Sets the compressible content types, replacing {@link #DEFAULT_MIME_TYPES}. Any <code>text/*</code>, <code>+json</code>, or <code>+xml</code> type is always compressible.
+         *
+         * @param mimeTypes compressible content types
+         * @return compression builder
+         *
+         * @see #addMimeType(String)
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        public final Builder setMimeTypes(final Collection<String> mimeTypes){
+            this.mimeTypes.clear();
+            for(final String mimeType : mimeTypes)
+                addMimeType(mimeType);
+            return this;
+        }
+
+        /**
+         * Adds a compressible content type.
+         *
+         * @param mimeType content type
+         * @return compression builder
+         *
+         * @see #setMimeTypes(Collection)
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        public final Builder addMimeType(final String mimeType){
+            mimeTypes.add(mimeType.trim().toLowerCase(Locale.ROOT));
+            return this;
+        }
+
+        /**
+         * Returns the completed compression settings.
+         *
+         * @return response compression
+         *
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        public final ResponseCompression build(){
+            return new ResponseCompression(minimumSize, compressionLevel, Set.copyOf(mimeTypes));
+        }
+
+    }
+
+}
@@ -23,18 +23,22 @@ import com.sun.net.httpserver.*;
 import java.io.*;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Flow;
 
 /**
  * <i>This class is a simplified implementation of {@link HttpExchange}</i>. <br>
  * This class provides methods to process requests from the client and send a response back. The handler will keep executing until a response is sent.<br><br>
  * Get/post type requests for <code>application/x-www-form-urlencoded</code> (default) will be a simple key/value map. <br>
  * Get/post type requests for <code>multipart/form-data</code> will use a {@link MultipartFormData}. <br>
- * If a file is submitted the value will be in bytes unless it is plain text.
+ * If a file is submitted the value will be in bytes unless it is plain text. <br>
+ * The request body is only read and parsed when a POST method is first used; handlers that never use the POST methods do not pay for it.
  *
  * @see HttpExchange
  * @since 02.00.00
- * @version 4.0.0
+ * @version 4.5.0
  * @author Ktt Development
  */
 @SuppressWarnings("SpellCheckingInspection")
@@ -200,17 +204,30 @@ public abstract class SimpleHttpExchange {
     public abstract String getRawGet();
 
     /**
-     * Returns the GET request as a map with its keys and values.
+     * Returns the GET request as a map with its keys and values. If a key is repeated, the map holds its last value; use {@link #getGetValues(String)} for all of them.
      *
      * @return GET request as a map
      *
      * @see #getRawGet()
+     * @see #getGetValues(String)
      * @see #hasGet()
      * @since 02.00.00
      * @author Ktt Development
      */
     public abstract Map<String,String> getGetMap();
 
+    /**
+     * Returns every value of a GET request key, in the order they were sent.
+     *
+     * @param name key
+     * @return values for the key, empty if there are none
+     *
+     * @see #getGetMap()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public abstract List<String> getGetValues(final String name);
+
     /**
      * Returns if there is a GET request.
      *
@@ -226,9 +243,9 @@ public abstract class SimpleHttpExchange {
 //
 
     /**
-     * Returns the POST request as a string.
+     * Returns the POST request as a string. A <code>multipart/form-data</code> body is not kept as a string, use {@link #getMultipartFormData()} instead.
      *
-     * @return POST request as a string
+     * @return POST request as a string or null if it is multipart/form-data
      *
      * @see HttpExchange#getRequestBody()
      * @see #getPostMap()
@@ -240,11 +257,13 @@ public abstract class SimpleHttpExchange {
     public abstract String getRawPost();
 
     /**
-     * Returns the POST request as keys mapped to values.
+     * Returns the POST request as keys mapped to values. <br>
+     * For multipart/form-data each input is mapped to its <code>headers</code> and <code>value</code>. File inputs also have their <code>record</code>, <code>file-name</code>, <code>content-type</code>, and <code>size</code>; files written to a temporary file have no <code>value</code>, use the {@link FileRecord} instead.
      *
      * @return POST request as a map
      *
      * @see #getRawPost()
+     * @see #getPostValues(String)
      * @see #getMultipartFormData()
      * @see #hasPost()
      * @since 02.00.00
@@ -254,7 +273,19 @@ public abstract class SimpleHttpExchange {
     public abstract Map getPostMap();
 
     /**
-     * Returns a multipart/form-data as an object or null if there is none.
+     * Returns every value of an <code>application/x-www-form-urlencoded</code> POST request key, in the order they were sent. A <code>multipart/form-data</code> request has no values here, use {@link #getMultipartFormData()} instead.
+     *
+     * @param name key
+     * @return values for the key, empty if there are none
+     *
+     * @see #getPostMap()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public abstract List<String> getPostValues(final String name);
+
+    /**
+     * Returns a multipart/form-data as an object or null if there is none. The body is parsed in a single pass over the raw bytes, so binary files are preserved.
      *
      * @return POST request as a multipart/form-data
      *
@@ -280,6 +311,76 @@ public abstract class SimpleHttpExchange {
      */
     public abstract boolean hasPost();
 
+    /**
+     * Returns the request body as a stream. Nothing is read ahead of time, so the body can be streamed elsewhere without being held in memory. <br>
+     * The body can only be read once; content read from this stream is not available to {@link #getRawPost()}, {@link #getPostMap()}, {@link #getMultipartFormData()}, and {@link #hasPost()}, and content read by those methods is not available to this stream.
+     *
+     * @return request body
+     *
+     * @see #getRequestBodyPublisher()
+     * @see #readFormData(FormDataListener)
+     * @see HttpExchange#getRequestBody()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public abstract InputStream getRequestBody();
+
+    /**
+     * Returns the request body as a publisher of byte chunks. Chunks are read from the body only as they are requested, on the thread that requested them. Only one subscriber is allowed. <br>
+     * Like {@link #getRequestBody()}, the body can only be read once.
+     *
+     * @return request body publisher
+     *
+     * @see #getRequestBody()
+     * @see #readFormData(FormDataListener)
+     * @see Flow.Publisher
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public abstract Flow.Publisher<ByteBuffer> getRequestBodyPublisher();
+
+    /**
+     * Reads a <code>multipart/form-data</code> or <code>application/x-www-form-urlencoded</code> request body and passes each field to the listener as it is read. Nothing is buffered beyond a single chunk. <br>
+     * Like {@link #getRequestBody()}, the body can only be read once.
+     *
+     * @param listener form data listener
+     * @throws IOException failed to read request body or exception thrown by the listener
+     *
+     * @see FormDataListener
+     * @see #getRequestBody()
+     * @see #getRequestBodyPublisher()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public abstract void readFormData(final FormDataListener listener) throws IOException;
+
+    /**
+     * Sets the largest multipart/form-data file or input that will be kept in memory, larger ones are written to a temporary file as a {@link FileRecord}. Must be set before the POST request is read. The default is 256 kilobytes.
+     *
+     * @param memoryThreshold maximum file size to keep in memory, in bytes
+     * @throws IllegalArgumentException if the threshold is negative
+     *
+     * @see #getMultipartMemoryThreshold()
+     * @see #getMultipartFormData()
+     * @see FileRecord
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public abstract void setMultipartMemoryThreshold(final long memoryThreshold);
+
+    /**
+     * Returns the largest multipart/form-data file or input that will be kept in memory.
+     *
+     * @return maximum file size to keep in memory, in bytes
+     *
+     * @see #setMultipartMemoryThreshold(long)
+     * @see #getMultipartFormData()
+     * @see FileRecord
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public abstract long getMultipartMemoryThreshold();
+
 //
 
     /**
@@ -306,6 +407,31 @@ public abstract class SimpleHttpExchange {
      */
     public abstract int getResponseCode();
 
+    /**
+     * Sets when responses sent with compression are compressed. The default is {@link ResponseCompression#getDefault()}.
+     *
+     * @param compression response compression
+     *
+     * @see ResponseCompression
+     * @see #getResponseCompression()
+     * @see #send(byte[], int, boolean)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public abstract void setResponseCompression(final ResponseCompression compression);
+
+    /**
+     * Returns when responses sent with compression are compressed.
+     *
+     * @return response compression
+     *
+     * @see ResponseCompression
+     * @see #setResponseCompression(ResponseCompression)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public abstract ResponseCompression getResponseCompression();
+
 //
 
     /**
@@ -428,7 +554,7 @@ public abstract class SimpleHttpExchange {
      * Sends a response to the client.
      *
      * @param response response in bytes
-     * @param gzip if response should be gziped before sending
+     * @param gzip if the response should be compressed, when the client accepts it and it is compressible
      * @throws IOException internal server error
      *
      * @see #sendResponseHeaders(int, long)
@@ -479,7 +605,7 @@ public abstract class SimpleHttpExchange {
      *
      * @param response response in bytes
      * @param responseCode response code
-     * @param gzip if response should be gziped before sending it to the client
+     * @param gzip if the response should be compressed, when the client accepts it and it is compressible
      * @throws IOException internal server error
      *
      * @see #sendResponseHeaders(int, long)
@@ -528,7 +654,7 @@ public abstract class SimpleHttpExchange {
      * Sends a response to the client.
      *
      * @param response response
-     * @param gzip if response should be gziped before sending it to the client
+     * @param gzip if the response should be compressed, when the client accepts it and it is compressible
      * @throws IOException internal server error
      *
      * @see #sendResponseHeaders(int, long)
@@ -579,7 +705,7 @@ public abstract class SimpleHttpExchange {
      *
      * @param response response
      * @param responseCode response code
-     * @param gzip if the response should be gziped before sending it to the client
+     * @param gzip if the response should be compressed, when the client accepts it and it is compressible
      * @throws IOException internal server error
      *
      * @see #sendResponseHeaders(int, long)
@@ -601,7 +727,7 @@ public abstract class SimpleHttpExchange {
     public abstract void send(final String response, final int responseCode, final boolean gzip) throws IOException;
 
     /**
-     * Sends a file  to the client.
+     * Sends a file to the client. The file is streamed in fixed size chunks with its length as the <code>Content-Length</code>.
      *
      * @param file file to send
      * @throws IOException internal server error or file read error
@@ -625,10 +751,10 @@ public abstract class SimpleHttpExchange {
     public abstract void send(final File file) throws IOException;
 
     /**
-     * Sends a file to the client.
+     * Sends a file to the client. The file is streamed in fixed size chunks; a compressed response is sent without a <code>Content-Length</code>.
      *
      * @param file file to send
-     * @param gzip if the response should be gziped before sending it to the client
+     * @param gzip if the response should be compressed, when the client accepts it and it is compressible
      * @throws IOException internal server error or file read error
      *
      * @see #sendResponseHeaders(int, long)
@@ -650,7 +776,7 @@ public abstract class SimpleHttpExchange {
     public abstract void send(final File file, final boolean gzip) throws IOException;
 
     /**
-     * Sends a file with response code to the client.
+     * Sends a file with response code to the client. The file is streamed in fixed size chunks with its length as the <code>Content-Length</code>.
      *
      * @param file file to send
      * @param responseCode response code
@@ -675,11 +801,11 @@ public abstract class SimpleHttpExchange {
     public abstract void send(final File file, final int responseCode) throws IOException;
 
     /**
-     * Sends a file with response code to the client.
+     * Sends a file with response code to the client. The file is streamed in fixed size chunks; a compressed response is sent without a <code>Content-Length</code>.
      *
      * @param file file to send
      * @param responseCode response code
-     * @param gzip if the response should be gziped before sending it to the client
+     * @param gzip if the response should be compressed, when the client accepts it and it is compressible
      * @throws IOException internal server error or file read error
      *
      * @see #sendResponseHeaders(int, long)
@@ -703,7 +829,7 @@ public abstract class SimpleHttpExchange {
 //
 
     /**
-     * Closes the exchange between the client and server.
+     * Closes the exchange between the client and server. Any temporary files created for multipart/form-data files are deleted.
      *
      * @since 02.00.00
      * @author Ktt Development
@@ -21,21 +21,21 @@ package com.kttdevelopment.simplehttpserver;
 import com.sun.net.httpserver.*;
 
 import java.io.*;
+import java.lang.ref.Cleaner;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.file.*;
 import java.util.*;
-import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.Flow;
 
 /**
  * Implementation for {@link SimpleHttpExchange}. Applications do not use this class.
  *
  * @see SimpleHttpExchange
  * @since 02.00.00
- * @version 4.2.0
+ * @version 4.5.0
  * @author Ktt Development
  */
 @SuppressWarnings("SpellCheckingInspection")
@@ -55,35 +55,30 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
     private final String requestMethod;
 
     private final String rawGet;
-    private final Map<String,String> getMap;
+    private final UrlEncodedParameters getMap;
     private final boolean hasGet;
 
-    private final String rawPost;
+    private PushbackInputStream requestBody;
+    private boolean postLoaded = false; // post is only read and parsed on first access
+    private String rawPost;
     @SuppressWarnings("rawtypes")
-    private final Map postMap;
-    private final MultipartFormData multipartFormData;
-    private final boolean hasPost;
+    private Map postMap;
+    private UrlEncodedParameters postParameters = UrlEncodedParameters.EMPTY;
+    private MultipartFormData multipartFormData;
+    private boolean hasPost;
+
+    private long multipartMemoryThreshold = 256 * 1024;
+    private final TemporaryFiles temporaryFiles = new TemporaryFiles();
+    private Cleaner.Cleanable temporaryFilesCleanable;
+
+    // deletes temporary files if the exchange is never closed
+    private static final Cleaner cleaner = Cleaner.create();
 
     private final Map<String,String> cookies;
 
-    private final OutputStream outputStream;
+    private ResponseCompression responseCompression = ResponseCompression.getDefault();
 
-    @SuppressWarnings("FieldCanBeLocal")
-    private final Function<String,Map<String,String>> parseWwwFormEnc = s -> {
-        final LinkedHashMap<String,String> OUT = new LinkedHashMap<>();
-        final String[] pairs = s.split("&");
-
-        for(final String pair : pairs){
-            if(pair.contains("=")){
-                final String[] kv = pair.split("=");
-                OUT.put(
-                    URLDecoder.decode(kv[0], StandardCharsets.UTF_8),
-                    kv.length == 2 ? URLDecoder.decode(kv[1], StandardCharsets.UTF_8) : null
-                );
-            }
-        }
-        return OUT;
-    };
+    private final OutputStream outputStream;
 
     /**
      * Creates a {@link SimpleHttpExchange}.
@@ -100,7 +95,6 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
         return new SimpleHttpExchangeImpl(exchange);
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
     SimpleHttpExchangeImpl(final HttpExchange exchange){
         httpServer = (httpContext = exchange.getHttpContext()).getServer();
         httpExchange = exchange;
@@ -116,99 +110,111 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
         requestMethod  = exchange.getRequestMethod().toUpperCase();
     //
         hasGet = (rawGet = URI.getRawQuery()) != null;
-        getMap = hasGet ? Collections.unmodifiableMap(parseWwwFormEnc.apply(rawGet)) : new HashMap<>();
-
+        getMap = UrlEncodedParameters.parse(rawGet);
     //
-        String OUT;
-
-        try(InputStream IN = httpExchange.getRequestBody(); final Scanner scanner = new Scanner(IN, StandardCharsets.UTF_8)){
-            OUT = scanner.useDelimiter("\\A").next();
-        }catch(final IOException | NoSuchElementException ignored){
-            OUT = null;
-        }
+        cookies = RequestCookies.parse(exchange);
+        outputStream = exchange.getResponseBody();
+    }
 
-        hasPost = (rawPost = OUT) != null;
-
-        if(hasPost){
-            final String content_type = requestHeaders.getFirst("Content-type");
-            if(content_type != null && content_type.startsWith("multipart/form-data")){
-                final Pattern boundaryHeaderPattern = Pattern.compile("(.*): (.*?)(?:$|; )(.*)"); // returns the headers listed after each webkit boundary
-                final Pattern contentDispositionKVPPattern = Pattern.compile("(.*?)=\"(.*?)\"(?:; |$)"); // returns the keys, values, and parameters for the content disposition header
-
-                final String webkitBoundary = content_type.substring(content_type.indexOf("; boundary=") + 11);
-                final String startBoundary = "--" + webkitBoundary + "\r\n";
-                final String endBoundary = "--" + webkitBoundary + "--\r\n"; // the final boundary in the request
-
-                final Map postMap_buffer = new HashMap<>();
-                final String[] pairs = OUT.replace(endBoundary,"").split(Pattern.quote(startBoundary));
-                for(String pair : pairs){
-                    final Map<String,Map> postHeaders = new HashMap<>();
-                    if(pair.contains("\r\n\r\n")){
-                        final String[] headers = pair.substring(0, pair.indexOf("\r\n\r\n")).split("\r\n");
-
-                        for(String header : headers){
-                            final Map headerMap = new HashMap<>();
-                            final Map<String,String> val = new HashMap<>();
-
-                            final Matcher headerMatcher = boundaryHeaderPattern.matcher(header);
-                            if(headerMatcher.find()){
-                                final Matcher contentDispositionKVPMatcher = contentDispositionKVPPattern.matcher(headerMatcher.group(3));
-                                while (contentDispositionKVPMatcher.find())
-                                    val.put(contentDispositionKVPMatcher.group(1), contentDispositionKVPMatcher.group(2));
-
-                                headerMap.put("header-name", headerMatcher.group(1));
-                                headerMap.put("header-value", headerMatcher.group(2));
-                                headerMap.put("parameters", val);
-                            }
-                            postHeaders.put((String) headerMap.get("header-name"), headerMap);
-                        }
-
-                        final Map row = new HashMap();
-                        row.put("headers", postHeaders);
-                        row.put("value", pair.substring(pair.indexOf("\r\n\r\n")+4, pair.lastIndexOf("\r\n")));
-
-                        postMap_buffer.put(
-                            ((Map<String,String>) postHeaders.get("Content-Disposition").get("parameters")).get("name"),
-                            row
-                        );
-                    }
-                }
-                Map<String,Record> form_buffer = new HashMap<>();
-                for(final Map.Entry<String,Map> e : ((Map<String, Map>) postMap_buffer).entrySet()){
-                     try{ // try to map as file record first
-                        form_buffer.put(e.getKey(), new FileRecord(e));
-                    }catch(final NullPointerException ignored){
-                        try{ // try to map a standard record next
-                            form_buffer.put(e.getKey(), new Record(e));
-                        }catch(final NullPointerException ignored2){}
-                    }catch(final ClassCastException ignored){
-                        form_buffer = Collections.emptyMap();
-                        break;
-                    }
+    // the request body, shared by the streaming and post methods so that it is only read once
+    private synchronized PushbackInputStream requestBody(){
+        if(requestBody == null)
+            requestBody = new PushbackInputStream(httpExchange.getRequestBody());
+        return requestBody;
+    }
+
+    // reads and parses the request body on first access to any post method
+    private synchronized void loadPost(){
+        if(postLoaded) return;
+        postLoaded = true;
+
+        final String content_type = requestHeaders.getFirst("Content-type");
+        try(final PushbackInputStream IN = requestBody()){
+            final int first = IN.read();
+            if(hasPost = first != -1)
+                IN.unread(first);
+
+            final String boundary;
+            if(!hasPost){
+                postMap = Collections.emptyMap();
+            }else if(content_type != null && content_type.startsWith("multipart/form-data") && (boundary = MultipartParser.getBoundary(content_type)) != null){
+                final Map<String,Record> form_buffer = new LinkedHashMap<>();
+                final MultipartParser parser = new MultipartParser(IN, boundary);
+                MultipartParser.Part part;
+                while((part = parser.next()) != null){
+                    final String name = part.getName();
+                    if(name == null) continue; // not a form input
+
+                    form_buffer.put(name, readRecord(part, name, part.getFileName()));
                 }
-
-                postMap = Collections.unmodifiableMap(postMap_buffer);
                 multipartFormData = form_buffer.isEmpty() ? null : new MultipartFormData(form_buffer);
             }else{
-                postMap = Collections.unmodifiableMap(parseWwwFormEnc.apply(rawPost));
-                multipartFormData = null;
+                rawPost = new String(IN.readAllBytes(), StandardCharsets.UTF_8);
+                postMap = postParameters = UrlEncodedParameters.parse(rawPost);
             }
-        }else{
+        }catch(final IOException ignored){ }
+
+        if(postMap == null && multipartFormData == null)
             postMap = Collections.emptyMap();
-            multipartFormData = null;
+    }
+
+    // keeps the part in memory unless it is larger than the memory threshold, larger fields are written to a temporary file like files
+    private Record readRecord(final MultipartParser.Part part, final String name, final String fileName) throws IOException{
+        final String contentType = Objects.requireNonNullElse(part.getContentType(), "text/plain");
+        final InputStream IN = part.getContent();
+        final int limit = (int) Math.min(multipartMemoryThreshold, Integer.MAX_VALUE - 9); // largest array that can be kept in memory
+        final byte[] head = IN.readNBytes(limit + 1);
+
+        if(head.length <= limit)
+            return fileName != null
+                ? new FileRecord(name, part.getHeaders(), fileName, contentType, head)
+                : new Record(name, part.getHeaders(), new String(head, StandardCharsets.UTF_8));
+
+        final Path path = Files.createTempFile("simplehttpserver-", ".tmp");
+        temporaryFiles.add(path);
+        if(temporaryFilesCleanable == null)
+            temporaryFilesCleanable = cleaner.register(this, temporaryFiles);
+
+        final long size;
+        try(final OutputStream OUT = Files.newOutputStream(path)){
+            OUT.write(head);
+            size = head.length + IN.transferTo(OUT);
         }
+        return new FileRecord(name, part.getHeaders(), fileName, contentType, path, size);
+    }
 
-        final String rawCookie = requestHeaders.getFirst("Cookie");
-        final Map<String,String> cookie_buffer = new HashMap<>();
-        if(rawCookie != null && !rawCookie.isEmpty()){
-            final String[] cookedCookie = rawCookie.split("; "); // pair
-            for(final String pair : cookedCookie){
-                String[] value = pair.split("=");
-                cookie_buffer.put(value[0], value[1]);
+    // multipart/form-data as a map of headers and values, only created if requested; temporary files are not read
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private synchronized Map getMultipartPostMap(){
+        if(postMap != null) return postMap;
+
+        final Map postMap_buffer = new LinkedHashMap<>();
+        for(final Record record : multipartFormData.getRecords().values()){
+            final Map<String,Map> postHeaders = new LinkedHashMap<>();
+            for(final Record.Header header : record.getHeaders().values()){
+                final Map headerMap = new HashMap<>();
+                headerMap.put("header-name", header.getHeaderName());
+                headerMap.put("header-value", header.getHeaderValue());
+                headerMap.put("parameters", header.getParameters());
+                postHeaders.put(header.getHeaderName(), headerMap);
             }
+
+            final Map row = new HashMap();
+            row.put("headers", postHeaders);
+            if(record instanceof FileRecord){
+                final FileRecord file = (FileRecord) record;
+                row.put("record", file);
+                row.put("file-name", file.getFileName());
+                row.put("content-type", file.getContentType());
+                row.put("size", file.getSize());
+                if(file.isInMemory())
+                    row.put("value", file.getValue());
+            }else{
+                row.put("value", record.getValue());
+            }
+            postMap_buffer.put(record.getName(), row);
         }
-        cookies = Collections.unmodifiableMap(cookie_buffer);
-        outputStream = exchange.getResponseBody();
+        return postMap = Collections.unmodifiableMap(postMap_buffer);
     }
 
     @Override
@@ -279,6 +285,11 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
         return getMap;
     }
 
+    @Override
+    public final List<String> getGetValues(final String name){
+        return getMap.getAll(name);
+    }
+
     @Override
     public final boolean hasGet(){
         return hasGet;
@@ -288,24 +299,140 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
 
     @Override
     public final String getRawPost(){
+        loadPost();
         return rawPost;
     }
 
     @Override @SuppressWarnings("rawtypes")
     public final Map getPostMap(){
-        return postMap;
+        loadPost();
+        return postMap != null ? postMap : getMultipartPostMap();
+    }
+
+    @Override
+    public final List<String> getPostValues(final String name){
+        loadPost();
+        return postParameters.getAll(name);
     }
 
     @Override
     public final MultipartFormData getMultipartFormData(){
+        loadPost();
         return multipartFormData;
     }
 
     @Override
     public final boolean hasPost(){
+        loadPost();
         return hasPost;
     }
 
+    @Override
+    public final InputStream getRequestBody(){
+        return requestBody();
+    }
+
+    @Override
+    public final Flow.Publisher<ByteBuffer> getRequestBodyPublisher(){
+        return new RequestBodyPublisher(requestBody());
+    }
+
+    @Override
+    public final void readFormData(final FormDataListener listener) throws IOException{
+        final String content_type = requestHeaders.getFirst("Content-type");
+        final String boundary;
+        if(content_type != null && content_type.startsWith("multipart/form-data") && (boundary = MultipartParser.getBoundary(content_type)) != null){
+            final MultipartParser parser = new MultipartParser(requestBody(), boundary);
+            final byte[] buffer = new byte[8 * 1024];
+            MultipartParser.Part part;
+            while((part = parser.next()) != null){
+                final String name = part.getName();
+                if(name == null) continue; // not a form input
+
+                listener.onFieldStart(name, part.getHeaders());
+                final InputStream IN = part.getContent();
+                int read;
+                while((read = IN.read(buffer)) != -1)
+                    listener.onFieldData(buffer, 0, read);
+                listener.onFieldEnd();
+            }
+        }else{
+            readUrlEncodedFormData(requestBody(), listener);
+        }
+    }
+
+    // decodes x-www-form-urlencoded fields as they are read, a field's value is passed in chunks
+    private static void readUrlEncodedFormData(final InputStream IN, final FormDataListener listener) throws IOException{
+        final byte[] buffer = new byte[8 * 1024];
+        final byte[] value = new byte[8 * 1024];
+        final ByteArrayOutputStream key = new ByteArrayOutputStream();
+
+        boolean inValue = false;
+        int valueLength = 0;
+        int escape = -1, escaped = 0; // hex digits read after '%' and their value
+
+        int read;
+        while((read = IN.read(buffer)) != -1){
+            for(int i = 0; i < read; i++){
+                final int b = buffer[i];
+                if(b == '&'){
+                    if(inValue){
+                        if(valueLength > 0)
+                            listener.onFieldData(value, 0, valueLength);
+                        listener.onFieldEnd();
+                    }
+                    inValue = false;
+                    valueLength = 0;
+                    escape = -1;
+                    key.reset();
+                }else if(!inValue && b == '='){
+                    inValue = true;
+                    escape = -1;
+                    listener.onFieldStart(URLDecoder.decode(key.toString(StandardCharsets.UTF_8), StandardCharsets.UTF_8), Collections.emptyMap());
+                }else if(!inValue){
+                    key.write(b);
+                }else{
+                    final int decoded;
+                    if(escape != -1){
+                        final int digit = Character.digit(b, 16);
+                        escaped = escaped * 16 + Math.max(digit, 0);
+                        if(++escape < 2) continue;
+                        decoded = escaped;
+                        escape = -1;
+                    }else if(b == '%'){
+                        escape = 0;
+                        escaped = 0;
+                        continue;
+                    }else{
+                        decoded = b == '+' ? ' ' : b;
+                    }
+                    value[valueLength++] = (byte) decoded;
+                    if(valueLength == value.length){
+                        listener.onFieldData(value, 0, valueLength);
+                        valueLength = 0;
+                    }
+                }
+            }
+        }
+        if(inValue){
+            if(valueLength > 0)
+                listener.onFieldData(value, 0, valueLength);
+            listener.onFieldEnd();
+        }
+    }
+
+    @Override
+    public synchronized final void setMultipartMemoryThreshold(final long memoryThreshold){
+        if(memoryThreshold < 0)
+            throw new IllegalArgumentException("Memory threshold can not be negative");
+        multipartMemoryThreshold = memoryThreshold;
+    }
+
+    @Override
+    public final long getMultipartMemoryThreshold(){
+        return multipartMemoryThreshold;
+    }
+
 //
 
     @Override
@@ -318,6 +445,16 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
         return httpExchange.getResponseCode();
     }
 
+    @Override
+    public synchronized final void setResponseCompression(final ResponseCompression compression){
+        responseCompression = Objects.requireNonNull(compression, "Response compression can not be null");
+    }
+
+    @Override
+    public final ResponseCompression getResponseCompression(){
+        return responseCompression;
+    }
+
 //
 
     @Override
@@ -372,23 +509,24 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
 
     @Override
     public final void send(final byte[] response, final int responseCode, final boolean gzip) throws IOException{
+        byte[] body = response;
         if(gzip){
-            httpExchange.getResponseHeaders().set("Accept-Encoding","gzip");
-            httpExchange.getResponseHeaders().set("Content-Encoding","gzip");
-            httpExchange.getResponseHeaders().set("Connection","keep-alive");
-            sendResponseHeaders(responseCode, 0);
-            try(GZIPOutputStream OUT = new GZIPOutputStream(httpExchange.getResponseBody())){
-                OUT.write(response);
-                OUT.finish();
-                OUT.flush();
-            }
-        }else{
-            sendResponseHeaders(responseCode, response.length);
-            try(final OutputStream OUT = httpExchange.getResponseBody()){
-                OUT.write(response);
-                OUT.flush();
+            final Headers responseHeaders = httpExchange.getResponseHeaders();
+            ResponseCompression.addVary(responseHeaders);
+            final String encoding = responseCompression.getEncoding(requestHeaders, responseHeaders, response.length);
+            if(encoding != null){
+                final byte[] compressed = responseCompression.compress(response, encoding);
+                if(compressed.length < response.length){ // already compressed content may grow
+                    responseHeaders.set("Content-Encoding", encoding);
+                    body = compressed;
+                }
             }
         }
+        sendResponseHeaders(responseCode, body.length);
+        try(final OutputStream OUT = httpExchange.getResponseBody()){
+            OUT.write(body);
+            OUT.flush();
+        }
     }
 
     @Override
@@ -413,22 +551,41 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
 
     @Override
     public final void send(final File file) throws IOException{
-        send(Files.readAllBytes(file.toPath()));
+        send(file, HttpURLConnection.HTTP_OK, false);
     }
 
     @Override
     public final void send(final File file, final boolean gzip) throws IOException{
-        send(Files.readAllBytes(file.toPath()), true);
+        send(file, HttpURLConnection.HTTP_OK, gzip);
     }
 
     @Override
     public final void send(final File file, final int responseCode) throws IOException{
-        send(Files.readAllBytes(file.toPath()), responseCode);
+        send(file, responseCode, false);
     }
 
     @Override
     public final void send(final File file, final int responseCode, final boolean gzip) throws IOException{
-        send(Files.readAllBytes(file.toPath()), responseCode, gzip);
+        try(final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            final long size = channel.size();
+            String encoding = null;
+            if(gzip){
+                ResponseCompression.addVary(httpExchange.getResponseHeaders());
+                encoding = responseCompression.getEncoding(requestHeaders, httpExchange.getResponseHeaders(), size);
+            }
+            if(encoding != null){ // compressed length is not known ahead of time
+                httpExchange.getResponseHeaders().set("Content-Encoding", encoding);
+                sendResponseHeaders(responseCode, 0);
+                try(final OutputStream OUT = responseCompression.compressor(httpExchange.getResponseBody(), encoding)){
+                    BufferPool.transfer(channel, 0, size, OUT);
+                }
+            }else{
+                sendResponseHeaders(responseCode, size == 0 ? -1 : size);
+                try(final OutputStream OUT = httpExchange.getResponseBody()){
+                    BufferPool.transfer(channel, 0, size, OUT);
+                }
+            }
+        }
     }
 
     //
@@ -439,6 +596,28 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
             outputStream.close();
         }catch(final IOException ignored){ }
         httpExchange.close();
+        if(temporaryFilesCleanable != null)
+            temporaryFilesCleanable.clean();
+    }
+
+    // temporary files created for multipart/form-data files, must not reference the exchange
+    private static final class TemporaryFiles implements Runnable {
+
+        private final List<Path> paths = new ArrayList<>();
+
+        private synchronized void add(final Path path){
+            paths.add(path);
+        }
+
+        @Override
+        public synchronized final void run(){
+            for(final Path path : paths)
+                try{
+                    Files.deleteIfExists(path);
+                }catch(final IOException ignored){ }
+            paths.clear();
+        }
+
     }
 
 //
@@ -455,6 +634,7 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
 
 //
 
+    // only shows the request body if it was already read
     @Override
     public String toString(){
         return
@@ -474,9 +654,9 @@ final class SimpleHttpExchangeImpl extends SimpleHttpExchange {
             "rawGet"                + '=' + '\'' + rawGet + '\''    + ", " +
             "getMap"                + '=' + getMap                  + ", " +
             "hasGet"                + '=' + hasGet                  + ", " +
-            "rawPost"               + '=' + '\'' + rawPost + '\''   + ", " +
-            "postMap"               + '=' + postMap                 + ", " +
-            "hasPost"               + '=' + hasPost                 + ", " +
+            "rawPost"               + '=' + '\'' + rawPost + '\''    + ", " +
+            "postMap"               + '=' + (postLoaded ? postMap != null ? postMap : multipartFormData : null) + ", " +
+            "hasPost"               + '=' + (postLoaded ? hasPost : null) + ", " +
             "cookies"               + '=' + cookies +
             '}';
     }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * An unmodifiable multi-map of <code>application/x-www-form-urlencoded</code> parameters, backed by parallel arrays. Applications do not use this class. <br>
+ * As a map, each key returns its last value; {@link #getAll(String)} returns every value for a key.
+ *
+ * @see SimpleHttpExchange#getGetMap()
+ * @see SimpleHttpExchange#getGetValues(String)
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+final class UrlEncodedParameters extends AbstractMap<String,String> {
+
+    static final UrlEncodedParameters EMPTY = new UrlEncodedParameters(new String[0], new String[0], 0);
+
+    private final String[] keys, values;
+    private final int length;
+
+    private Set<Entry<String,String>> entrySet;
+
+    private UrlEncodedParameters(final String[] keys, final String[] values, final int length){
+        this.keys   = keys;
+        this.values = values;
+        this.length = length;
+    }
+
+    /**
+     * Parses a <code>application/x-www-form-urlencoded</code> string in a single pass. Keys and values are only decoded if they contain a <code>%</code> or <code>+</code>.
+     *
+     * @param raw encoded parameters
+     * @return parameters
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static UrlEncodedParameters parse(final String raw){
+        if(raw == null || raw.isEmpty()) return EMPTY;
+
+        final int len = raw.length();
+        int capacity = 1;
+        for(int i = 0; i < len; i++)
+            if(raw.charAt(i) == '&')
+                capacity++;
+
+        final String[] keys   = new String[capacity];
+        final String[] values = new String[capacity];
+        int size = 0;
+
+        int start = 0, eq = -1;
+        for(int i = 0; i <= len; i++){
+            final char c = i < len ? raw.charAt(i) : '&';
+            if(c == '=' && eq == -1){
+                eq = i;
+            }else if(c == '&'){
+                if(eq != -1){ // pairs without a value are ignored
+                    keys[size]   = decode(raw, start, eq);
+                    values[size] = decode(raw, eq + 1, i);
+                    size++;
+                }
+                start = i + 1;
+                eq = -1;
+            }
+        }
+        return new UrlEncodedParameters(keys, values, size);
+    }
+
+    private static String decode(final String raw, final int start, final int end){
+        for(int i = start; i < end; i++){
+            final char c = raw.charAt(i);
+            if(c == '%' || c == '+'){
+                final String encoded = raw.substring(start, end);
+                try{
+                    return URLDecoder.decode(encoded, StandardCharsets.UTF_8);
+                }catch(final IllegalArgumentException ignored){ // malformed escape
+                    return encoded;
+                }
+            }
+        }
+        return raw.substring(start, end);
+    }
+
+//
+
+    /**
+     * Returns all values for a key in the order they were sent.
+     *
+     * @param key parameter key
+     * @return values for the key, empty if there are none
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final List<String> getAll(final String key){
+        String first = null;
+        List<String> OUT = null;
+        for(int i = 0; i < length; i++){
+            if(keys[i].equals(key)){
+                if(first == null && OUT == null){
+                    first = values[i];
+                }else{
+                    if(OUT == null){
+                        OUT = new ArrayList<>();
+                        OUT.add(first);
+                    }
+                    OUT.add(values[i]);
+                }
+            }
+        }
+        return OUT != null ? Collections.unmodifiableList(OUT) : first != null ? List.of(first) : List.of();
+    }
+
+    @Override
+    public final String get(final Object key){
+        for(int i = length - 1; i >= 0; i--)
+            if(keys[i].equals(key))
+                return values[i];
+        return null;
+    }
+
+    @Override
+    public final boolean containsKey(final Object key){
+        for(int i = 0; i < length; i++)
+            if(keys[i].equals(key))
+                return true;
+        return false;
+    }
+
+    @Override
+    public final boolean isEmpty(){
+        return length == 0;
+    }
+
+    // each key once, in the order it first appears, with its last value
+    @Override
+    public final Set<Entry<String,String>> entrySet(){
+        if(entrySet == null){
+            final List<Entry<String,String>> entries = new ArrayList<>(length);
+            outer:
+            for(int i = 0; i < length; i++){
+                for(int j = 0; j < i; j++)
+                    if(keys[j].equals(keys[i]))
+                        continue outer;
+                entries.add(new SimpleImmutableEntry<>(keys[i], get(keys[i])));
+            }
+            entrySet = new AbstractSet<>() {
+                @Override
+                public final Iterator<Entry<String,String>> iterator(){
+                    return Collections.unmodifiableList(entries).iterator();
+                }
+
+                @Override
+                public final int size(){
+                    return entries.size();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+}
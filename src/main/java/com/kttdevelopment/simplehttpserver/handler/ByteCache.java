@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver.handler;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits how many bytes the files of a {@link FileHandler} keep in memory. Applications do not use this class. <br>
+ * Files are evicted in least recently used order. A newly loaded file is only kept if it was requested more often than every file it would evict, so a few large or rarely used files can not push out small files that are requested often. <br>
+ * Kept bytes are stored on the heap, or in direct buffers outside of the heap if {@link #setOffHeap(boolean)} is set. <br>
+Requests are recorded in a buffer without blocking, and applied in batches by whichever thread gets the lock.
+ *
+ * @see FileHandler
+ * @see FileEntry
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+final class ByteCache {
+
+    private static final int DRAIN_THRESHOLD = 64;
+    private static final int MAXIMUM_PENDING = 16 * 1024;
+
+    private final long maximumSize;
+
+    private final ReentrantLock lock = new ReentrantLock(); // guards entries, sketch, and size
+    private final LinkedHashMap<FileEntry,Long> entries = new LinkedHashMap<>(16, 0.75f, true); // least recently used first
+    private final FrequencySketch sketch = new FrequencySketch();
+    private long size = 0;
+
+    // requests not yet applied to the entries and sketch
+    private final Queue<FileEntry> accesses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private volatile boolean offHeap = false;
+
+    /**
+     * Creates a byte cache.
+     *
+     * @param maximumSize maximum bytes to keep, or {@link Long#MAX_VALUE} for no limit
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    ByteCache(final long maximumSize){
+        if(maximumSize < 0)
+            throw new IllegalArgumentException("Maximum cache size must not be negative");
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the maximum bytes to keep.
+     *
+     * @return maximum cache size
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final long getMaximumSize(){
+        return maximumSize;
+    }
+
+    /**
+     * Returns how many bytes are kept.
+     *
+     * @return cache size
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final long getSize(){
+        lock.lock();
+        try{
+            return size;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets if bytes stored after this are kept outside of the heap.
+     *
+     * @param offHeap if bytes should be kept in direct buffers
+     *
+     * @see #store(byte[])
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void setOffHeap(final boolean offHeap){
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Returns if bytes are kept outside of the heap.
+     *
+     * @return if bytes are kept in direct buffers
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final boolean isOffHeap(){
+        return offHeap;
+    }
+
+    /**
+     * Returns a buffer to keep bytes in. On the heap the array is wrapped without copying it, otherwise the bytes are copied into a direct buffer and the array can be collected.
+     *
+     * @param bytes bytes to keep
+     * @return buffer
+     *
+     * @see #setOffHeap(boolean)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final ByteBuffer store(final byte[] bytes){
+        if(!offHeap)
+            return ByteBuffer.wrap(bytes);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    private boolean isUnbounded(){
+        return maximumSize == Long.MAX_VALUE;
+    }
+
+//
+
+    /**
+     * Records a request for a file without blocking. Requests are applied once enough are buffered and no other thread holds the lock, or before the next file is admitted. If the buffer is full the request is not recorded.
+     *
+     * @param entry file entry
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void access(final FileEntry entry){
+        if(isUnbounded()) return;
+        final int count = pending.incrementAndGet();
+        if(count > MAXIMUM_PENDING)
+            pending.decrementAndGet();
+        else
+            accesses.offer(entry);
+        if(count >= DRAIN_THRESHOLD && lock.tryLock()){
+            try{
+                drain();
+            }finally{
+                lock.unlock();
+            }
+        }
+    }
+
+    // applies buffered requests, must hold the lock
+    private void drain(){
+        FileEntry entry;
+        while((entry = accesses.poll()) != null){
+            pending.decrementAndGet();
+            sketch.increment(entry);
+            entries.get(entry); // move to most recently used
+        }
+    }
+
+    /**
+     * Keeps the loaded content of a file if there is room, or if it was requested more often than the files that would be evicted to make room.
+     *
+     * @param entry file entry
+     * @param content loaded content
+     * @return if the content was kept
+     *
+     * @see FileEntry#retain(FileEntry.Content)
+     * @see FileEntry#evict()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final boolean admit(final FileEntry entry, final FileEntry.Content content){
+        if(isUnbounded()){
+            entry.retain(content);
+            return true;
+        }
+        final long weight = content.getWeight();
+        lock.lock();
+        try{
+            drain();
+            final Long previous = entries.remove(entry);
+            if(previous != null){
+                size -= previous;
+                entry.release();
+            }
+            if(weight > maximumSize) return false;
+
+            if(size + weight > maximumSize){
+                // find the least recently used files that make enough room, unless one of them is requested more often
+                final int frequency = sketch.frequency(entry);
+                final List<FileEntry> victims = new ArrayList<>();
+                long freed = 0;
+                for(final Map.Entry<FileEntry,Long> victim : entries.entrySet()){
+                    if(size - freed + weight <= maximumSize) break;
+                    if(sketch.frequency(victim.getKey()) >= frequency) return false;
+                    victims.add(victim.getKey());
+                    freed += victim.getValue();
+                }
+                for(final FileEntry victim : victims){
+                    size -= entries.remove(victim);
+                    victim.evict();
+                }
+            }
+
+            entries.put(entry, weight);
+            size += weight;
+            entry.retain(content);
+            return true;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the content of a file from the cache.
+     *
+     * @param entry file entry
+     *
+     * @see FileEntry#release()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void remove(final FileEntry entry){
+        if(isUnbounded()){
+            entry.release();
+            return;
+        }
+        lock.lock();
+        try{
+            final Long weight = entries.remove(entry);
+            if(weight != null)
+                size -= weight;
+            entry.release();
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    // count-min sketch of 4 bit counters, halved periodically so old popularity fades
+    private static final class FrequencySketch {
+
+        private static final int[] SEEDS = {0x97CB3127, 0xB3F8EBB5, 0x2A1D3C4F, 0xE2A4C87D};
+        private static final int MAX = 15;
+
+        private final byte[] counters = new byte[1 << 14];
+        private final int resetAt = counters.length * 10;
+        private int additions = 0;
+
+        private void increment(final Object key){
+            final int hash = key.hashCode();
+            boolean added = false;
+            for(final int seed : SEEDS){
+                final int index = indexOf(hash, seed);
+                if(counters[index] < MAX){
+                    counters[index]++;
+                    added = true;
+                }
+            }
+            if(added && ++additions == resetAt){
+                for(int i = 0; i < counters.length; i++)
+                    counters[i] >>>= 1;
+                additions /= 2;
+            }
+        }
+
+        private int frequency(final Object key){
+            final int hash = key.hashCode();
+            int frequency = MAX;
+            for(final int seed : SEEDS)
+                frequency = Math.min(frequency, counters[indexOf(hash, seed)]);
+            return frequency;
+        }
+
+        private int indexOf(final int hash, final int seed){
+            int h = (hash + seed) * 0x9E3779B9;
+            h ^= h >>> 16;
+            return h & (counters.length - 1);
+        }
+
+    }
+
+//
+
+    @Override
+    public String toString(){
+        return
+            "ByteCache"     + '{' +
+            "maximumSize"   + '=' +     maximumSize     + ", " +
+            "size"          + '=' +     getSize()       + ", " +
+            "offHeap"       + '=' +     offHeap         +
+            '}';
+    }
+
+}
@@ -23,12 +23,14 @@ package com.kttdevelopment.simplehttpserver.handler;
  *
  * <code>PRELOAD</code> - read file when it is added to the handler <br>
  * <code>MODLOAD</code> - read file when it is added and anytime it is updated <br>
+ * <code>MMAP</code> - map file into memory when it is added and map it again anytime it is updated. The mapped bytes are shared through the page cache instead of being copied onto the heap, and are not changed by the {@link FileBytesAdapter}. Files must be smaller than 2 GB, and should be replaced rather than truncated while they are mapped. <br>
+ * <code>WATCHLOAD</code> - read file when it is added and again after the file system reports it was changed. Directories pick up created files and drop deleted ones without checking the file on each request. <br>
  * <code>CACHELOAD</code> - load file when requested and clear from memory when maximum time expires. Requires a {@link CacheFileAdapter}. <br>
  * <code>LIVELOAD</code> - read file each time an exchange happens
  *
  * @see FileHandler
  * @since 03.05.00
- * @version 4.0.0
+ * @version 4.5.0
  * @author Ktt Development
  */
 @SuppressWarnings("SpellCheckingInspection")
@@ -36,6 +38,8 @@ public enum ByteLoadingOption {
 
     PRELOAD,
     MODLOAD,
+    MMAP,
+    WATCHLOAD,
     CACHELOAD,
     LIVELOAD
 
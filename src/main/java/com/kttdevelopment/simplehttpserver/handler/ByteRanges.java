@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver.handler;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpExchange;
+import com.sun.net.httpserver.Headers;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Parses <code>Range</code> requests and sends partial responses for the {@link FileHandler}. Applications do not use this class.
+ *
+ * @see FileHandler
+ * @see Validators
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+final class ByteRanges {
+
+    // more ranges than this are answered with the full response
+    private static final int MAX_RANGES = 32;
+
+    private ByteRanges(){ }
+
+    /**
+     * Writes a part of the response body.
+     *
+     * @since 4.5.0
+     * @version 4.5.0
+     * @author Ktt Development
+     */
+    interface Writer {
+
+        void write(final OutputStream OUT, final long offset, final long length) throws IOException;
+
+    }
+
+    /**
+     * Returns a writer for a slice of an array, without copying the array.
+     *
+     * @param bytes bytes
+     * @return writer
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static Writer of(final byte[] bytes){
+        return (OUT, offset, length) -> OUT.write(bytes, (int) offset, (int) length);
+    }
+
+    /**
+     * Returns a writer for a slice of a buffer, without copying a heap buffer. A direct buffer is written through a small transfer buffer instead of being copied onto the heap.
+     *
+     * @param buffer bytes, from its position to its limit
+     * @return writer
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static Writer of(final ByteBuffer buffer){
+        return (OUT, offset, length) -> {
+            final ByteBuffer slice = buffer.duplicate();
+            slice.position(buffer.position() + (int) offset);
+            slice.limit(slice.position() + (int) length);
+            if(slice.hasArray()){
+                OUT.write(slice.array(), slice.arrayOffset() + slice.position(), slice.remaining());
+                return;
+            }
+            final WritableByteChannel target = Channels.newChannel(OUT);
+            while(slice.hasRemaining())
+                target.write(slice);
+        };
+    }
+
+    /**
+     * Returns a writer that only reads the requested slice of a file.
+     *
+     * @param channel file
+     * @return writer
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static Writer of(final FileChannel channel){
+        return (OUT, offset, length) -> {
+            final WritableByteChannel target = Channels.newChannel(OUT);
+            long position = offset, remaining = length;
+            while(remaining > 0){
+                final long sent = channel.transferTo(position, remaining, target);
+                if(sent <= 0)
+                    throw new IOException("File ended before " + length + " bytes were sent");
+                position += sent;
+                remaining -= sent;
+            }
+        };
+    }
+
+//
+
+    /**
+     * Returns the requested ranges as pairs of first and last byte positions. <br>
+     * Returns null if the full response should be sent: there is no range, it is malformed, the <code>If-Range</code> validator does not match the <code>ETag</code> or <code>Last-Modified</code> response header, or the ranges would not make the response smaller. Returns an empty list if no range can be satisfied.
+     *
+     * @param exchange http exchange
+     * @param length response length
+     * @return ranges, empty list if unsatisfiable, or null
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static List<long[]> getRanges(final SimpleHttpExchange exchange, final long length){
+        final Headers headers = exchange.getRequestHeaders();
+        final String range = headers.getFirst("Range");
+        if(range == null || !exchange.getRequestMethod().equals("GET")) return null;
+
+        final String ifRange = headers.getFirst("If-Range");
+        if(ifRange != null && !Validators.matchesIfRange(ifRange, exchange.getResponseHeaders())) return null;
+
+        if(!range.regionMatches(true, 0, "bytes=", 0, 6)) return null;
+
+        final List<long[]> ranges = new ArrayList<>();
+        long total = 0;
+        for(final String spec : range.substring(6).split(",")){
+            final String s = spec.trim();
+            if(s.isEmpty()) continue;
+            final int dash = s.indexOf('-');
+            if(dash == -1) return null;
+
+            final long first, last;
+            try{
+                if(dash == 0){ // suffix, ex: -500
+                    final long suffix = Long.parseLong(s.substring(1));
+                    if(suffix < 0) return null;
+                    if(suffix == 0 || length == 0) continue; // unsatisfiable
+                    first = Math.max(0, length - suffix);
+                    last  = length - 1;
+                }else{
+                    first = Long.parseLong(s.substring(0, dash));
+                    final String end = s.substring(dash + 1);
+                    final long requested = end.isEmpty() ? Long.MAX_VALUE : Long.parseLong(end);
+                    if(first < 0 || requested < first) return null;
+                    if(first >= length) continue; // unsatisfiable
+                    last = Math.min(requested, length - 1);
+                }
+            }catch(final NumberFormatException ignored){
+                return null;
+            }
+            ranges.add(new long[]{first, last});
+            total += last - first + 1;
+            if(ranges.size() > MAX_RANGES || total > length) return null;
+        }
+        return ranges;
+    }
+
+//
+
+    /**
+     * Sends a <code>206</code> partial response for the ranges, or <code>416</code> if there are none. The exchange is closed by the handler.
+     *
+     * @param exchange http exchange
+     * @param ranges ranges from {@link #getRanges(SimpleHttpExchange, long)}
+     * @param length full response length
+     * @param writer writes the requested parts
+     * @throws IOException internal failure
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static void send(final SimpleHttpExchange exchange, final List<long[]> ranges, final long length, final Writer writer) throws IOException{
+        final Headers headers = exchange.getResponseHeaders();
+        if(ranges.isEmpty()){
+            headers.set("Content-Range", "bytes */" + length);
+            exchange.sendResponseHeaders(416, -1);
+        }else if(ranges.size() == 1){
+            final long[] range = ranges.get(0);
+            final long count   = range[1] - range[0] + 1;
+            headers.set("Content-Range", "bytes " + range[0] + '-' + range[1] + '/' + length);
+            exchange.sendResponseHeaders(206, count);
+            try(final OutputStream OUT = exchange.getOutputStream()){
+                writer.write(OUT, range[0], count);
+            }
+        }else{
+            final String boundary    = UUID.randomUUID().toString();
+            final String contentType = Objects.requireNonNullElse(headers.getFirst("Content-Type"), "application/octet-stream");
+
+            // part headers are known ahead of time, so the response has a fixed length
+            final byte[][] partHeaders = new byte[ranges.size()][];
+            final byte[] close = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+            long total = close.length;
+            for(int i = 0; i < ranges.size(); i++){
+                final long[] range = ranges.get(i);
+                partHeaders[i] = (
+                    "\r\n--" + boundary + "\r\n" +
+                    "Content-Type: " + contentType + "\r\n" +
+                    "Content-Range: bytes " + range[0] + '-' + range[1] + '/' + length + "\r\n\r\n"
+                ).getBytes(StandardCharsets.US_ASCII);
+                total += partHeaders[i].length + range[1] - range[0] + 1;
+            }
+
+            headers.set("Content-Type", "multipart/byteranges; boundary=" + boundary);
+            exchange.sendResponseHeaders(206, total);
+            try(final OutputStream OUT = exchange.getOutputStream()){
+                for(int i = 0; i < ranges.size(); i++){
+                    final long[] range = ranges.get(i);
+                    OUT.write(partHeaders[i]);
+                    writer.write(OUT, range[0], range[1] - range[0] + 1);
+                }
+                OUT.write(close);
+            }
+        }
+    }
+
+}
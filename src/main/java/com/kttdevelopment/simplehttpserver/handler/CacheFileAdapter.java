@@ -18,22 +18,27 @@
 
 package com.kttdevelopment.simplehttpserver.handler;
 
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Set;
+import java.util.concurrent.*;
 
 /**
- * This class caches file bytes when adding to the {@link FileHandler}. Only works for files withe the {@link ByteLoadingOption#CACHELOAD} option.
+ * This class caches file bytes when adding to the {@link FileHandler}. Only works for files withe the {@link ByteLoadingOption#CACHELOAD} option. <br>
+ * Expired files are cleared by a background thread, which only runs while files are cached. <br>
+ * With a maximum staleness, an expired file keeps being served while the background thread loads it again, so requests do not wait on the reload. Files that were not requested within the maximum staleness are cleared and loaded on the next request.
  *
  * @see FileHandlerAdapter
  * @see FileHandler
  * @since 4.0.0
- * @version 4.0.0
+ * @version 4.5.0
  * @author Ktt Development
  */
 public class CacheFileAdapter implements FileHandlerAdapter {
 
     private final long cacheTimeMillis;
-    private final AtomicLong closestExpiry = new AtomicLong(0);
+    private final long maxStaleMillis;
+
+    private final ScheduledThreadPoolExecutor sweeper;
+    private final Set<FileEntry> scheduled = ConcurrentHashMap.newKeySet();
 
     /**
      * Creates a CacheFileAdapter where files will expire after set milliseconds.
@@ -44,7 +49,25 @@ public class CacheFileAdapter implements FileHandlerAdapter {
      * @author Ktt Development
      */
     public CacheFileAdapter(final long cacheTimeMillis){
+        this(cacheTimeMillis, 0);
+    }
+
+    /**
+     * Creates a CacheFileAdapter where files will expire after set milliseconds, and expired files are served while they are loaded again in the background.
+     *
+     * @param cacheTimeMillis how long a file should exist for
+     * @param maxStaleMillis how long after it expires a file can be served while it is loaded again
+     * @throws IllegalArgumentException if the maximum staleness is negative
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public CacheFileAdapter(final long cacheTimeMillis, final long maxStaleMillis){
+        if(maxStaleMillis < 0)
+            throw new IllegalArgumentException("Maximum staleness must not be negative");
         this.cacheTimeMillis = cacheTimeMillis;
+        this.maxStaleMillis  = maxStaleMillis;
+        sweeper = createSweeper();
     }
 
     /**
@@ -58,7 +81,34 @@ public class CacheFileAdapter implements FileHandlerAdapter {
      * @author Ktt Development
      */
     public CacheFileAdapter(final long cacheTime, final TimeUnit timeUnit){
-        cacheTimeMillis = timeUnit.toMillis(cacheTime);
+        this(timeUnit.toMillis(cacheTime), 0);
+    }
+
+    /**
+     * Creates a CacheFileAdapter where files will expire after a set time, and expired files are served while they are loaded again in the background.
+     *
+     * @param cacheTime how long a file should exist for
+     * @param maxStale how long after it expires a file can be served while it is loaded again
+     * @param timeUnit the time unit
+     * @throws IllegalArgumentException if the maximum staleness is negative
+     *
+     * @see TimeUnit
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public CacheFileAdapter(final long cacheTime, final long maxStale, final TimeUnit timeUnit){
+        this(timeUnit.toMillis(cacheTime), timeUnit.toMillis(maxStale));
+    }
+
+    private static ScheduledThreadPoolExecutor createSweeper(){
+        final ScheduledThreadPoolExecutor sweeper = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "CacheFileAdapter-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.setKeepAliveTime(1, TimeUnit.SECONDS);
+        sweeper.allowCoreThreadTimeOut(true);
+        return sweeper;
     }
 
     /**
@@ -74,38 +124,60 @@ public class CacheFileAdapter implements FileHandlerAdapter {
     }
 
     /**
-     * Returns the closest expiry.
+     * Returns how long after it expires a file can be served while it is loaded again.
      *
-     * @return closest expiry
+     * @return maximum staleness, 0 if expired files are not served
      *
-     * @see #updateClosestExpiry(long)
-     * @since 4.0.0
+     * @since 4.5.0
      * @author Ktt Development
      */
-    final long getClosestExpiry(){
-        return closestExpiry.get();
+    final long getMaxStaleMillis(){
+        return maxStaleMillis;
     }
 
     /**
-     * Sets the closest expiry if it is less than the current expiry
+     * Loads an expired file again on the background thread.
      *
-     * @param expiry newest expiry
+     * @param entry file that expired
+     * @param stale content that is being served until then
      *
-     * @see #getClosestExpiry()
-     * @since 4.0.0
+     * @see FileEntry#revalidate(FileEntry.Content)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void revalidate(final FileEntry entry, final FileEntry.Content stale){
+        sweeper.execute(() -> entry.revalidate(stale));
+    }
+
+    /**
+     * Clears the file's bytes once it expires and the maximum staleness has passed. Files that are requested again before then are checked again at their new expiry.
+     *
+     * @param entry file that was loaded
+     *
+     * @see FileEntry#getExpiry()
+     * @see FileEntry#expire(long)
+     * @since 4.5.0
      * @author Ktt Development
      */
-    synchronized final void updateClosestExpiry(final long expiry){
-        final long was = closestExpiry.get();
-        if(expiry < was || was < System.currentTimeMillis()) // update expiry if new is lower or if expiry has lapsed
-            closestExpiry.set(expiry);
+    final void schedule(final FileEntry entry){
+        if(scheduled.add(entry)){
+            final long delay = Math.max(0, entry.getExpiry() - System.currentTimeMillis());
+            sweeper.schedule(() -> sweep(entry), delay > Long.MAX_VALUE - maxStaleMillis ? Long.MAX_VALUE : delay + maxStaleMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sweep(final FileEntry entry){
+        scheduled.remove(entry); // before checking, so a file loaded during the check is scheduled again
+        if(!entry.expire(System.currentTimeMillis() - maxStaleMillis))
+            schedule(entry);
     }
 
     @Override
     public String toString(){
         return
             "CacheFileAdapter"  + '{' +
-            "cacheTimeMillis"   + '=' + cacheTimeMillis +
+            "cacheTimeMillis"   + '=' + cacheTimeMillis + ", " +
+            "maxStaleMillis"    + '=' + maxStaleMillis  +
             '}';
     }
 
@@ -24,7 +24,7 @@ import java.io.*;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
 
 /**
  * Represents a directory in the {@link FileHandler}. Applications do not use this class.
@@ -32,7 +32,7 @@ import java.util.concurrent.ConcurrentHashMap;
  * @see FileHandler
  * @see FileEntry
  * @since 02.00.00
- * @version 4.3.0
+ * @version 4.5.0
  * @author Ktt Development
  */
 @SuppressWarnings("SpellCheckingInspection")
@@ -42,10 +42,17 @@ class DirectoryEntry {
     private final FileHandlerAdapter adapter;
     private final ByteLoadingOption loadingOption;
     private final boolean isWalkthrough;
+    private final ByteCache cache;
+    private final FileHandlerStats stats;
+    private final FileWatcher watcher; // watchload only
+    private final DirectoryIndex index;
 
     private final Map<String,FileEntry> files = new ConcurrentHashMap<>(); // non liveload only
     private final Path directoryPath;
 
+    private volatile boolean isLoading = false; // loading in the background
+    private volatile boolean isClosed = false;
+
     /**
      * Create a directory entry.
      *
@@ -53,59 +60,288 @@ class DirectoryEntry {
      * @param adapter how to process the bytes in {@link #getBytes(String)}
      * @param loadingOption how to handle the initial file loading
      * @param isWalkthrough whether to use sub-directories or not
+     * @param cache where loaded bytes are kept
+     * @param stats handler stats, which also count loading in this directory
+     * @param watcher where directories are watched for {@link ByteLoadingOption#WATCHLOAD}
      * @throws UncheckedIOException failure to walk through directory or failure to start watch service
      *
      * @see FileBytesAdapter
      * @see ByteLoadingOption
+     * @see ByteCache
+     * @see FileHandlerStats
+     * @see FileWatcher
      * @since 03.05.00
      * @author Ktt Development
      */
-    DirectoryEntry(final File directory, final FileHandlerAdapter adapter, final ByteLoadingOption loadingOption, final boolean isWalkthrough){
+    DirectoryEntry(final File directory, final FileHandlerAdapter adapter, final ByteLoadingOption loadingOption, final boolean isWalkthrough, final ByteCache cache, final FileHandlerStats stats, final FileWatcher watcher){
+        this(directory, adapter, loadingOption, isWalkthrough, cache, stats, watcher, null, null, null, null);
+    }
+
+    /**
+     * Create a directory entry that walks through sub-directories and loads files in parallel, or using a startup index. Files are loaded when requested until loading is done.
+     *
+     * @param directory directory to represent
+     * @param adapter how to process the bytes in {@link #getBytes(String)}
+     * @param loadingOption how to handle the initial file loading
+     * @param isWalkthrough whether to use sub-directories or not
+     * @param cache where loaded bytes are kept
+     * @param stats handler stats, which also count loading in this directory
+     * @param watcher where directories are watched for {@link ByteLoadingOption#WATCHLOAD}
+     * @param pool where to load files, or null to load them before returning
+     * @param progress loading progress, required if there is a pool
+     * @param indexFile where to read and write a {@link StartupIndex} of a walked directory loaded without a pool, or null to not use one
+     * @param indexKey what the startup index is for, required if there is an index file
+     * @throws UncheckedIOException failure to walk through directory or failure to start watch service, only if there is no pool
+     *
+     * @see FileBytesAdapter
+     * @see ByteLoadingOption
+     * @see ByteCache
+     * @see FileHandlerStats
+     * @see FileWatcher
+     * @see LoadProgress
+     * @see StartupIndex
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    DirectoryEntry(final File directory, final FileHandlerAdapter adapter, final ByteLoadingOption loadingOption, final boolean isWalkthrough, final ByteCache cache, final FileHandlerStats stats, final FileWatcher watcher, final ForkJoinPool pool, final LoadProgress progress, final File indexFile, final String indexKey){
         this.directory     = directory;
         this.adapter       = adapter;
         this.loadingOption = loadingOption;
         this.isWalkthrough = isWalkthrough;
+        this.cache         = cache;
+        this.stats         = new FileHandlerStats(stats);
+        this.watcher       = watcher;
 
-        directoryPath      = directory.toPath();
+        directoryPath      = directory.toPath().toAbsolutePath().normalize(); // the same paths the watcher gives
+        index              = new DirectoryIndex(adapter, loadingOption == ByteLoadingOption.WATCHLOAD);
 
-        if(loadingOption != ByteLoadingOption.LIVELOAD){
-            if(!isWalkthrough){
-                final File[] listFiles = Objects.requireNonNullElse(directory.listFiles(File::isFile), new File[0]);
-                for(final File file : listFiles)
-                    addFile(file);
-            }else{
-                try{
-                    Files.walkFileTree(directoryPath, new SimpleFileVisitor<>() {
-                        @Override
-                        public final FileVisitResult visitFile(final Path path, final BasicFileAttributes attrs){
-                            addDirectoryFile(path.toFile());
-                            return FileVisitResult.CONTINUE;
+        if(loadingOption == ByteLoadingOption.LIVELOAD){
+            if(progress != null)
+                progress.complete(null);
+        }else if(pool == null){
+            try{
+                if(indexFile != null && isWalkthrough){
+                    final StartupIndex index = new StartupIndex();
+                    addIndexedFiles(directoryPath, StartupIndex.read(indexFile, indexKey), index);
+                    try{
+                        index.write(indexFile, indexKey);
+                    }catch(final IOException ignored){ } // the next start walks the directory again
+                }else{
+                    addFiles(directoryPath);
+                }
+            }catch(final IOException e){
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }else{
+            isLoading = true;
+            CompletableFuture
+                .runAsync(() -> new LoadTask(directoryPath, progress).invoke(), pool)
+                .whenComplete((ignored, exception) -> {
+                    isLoading = false;
+                    progress.complete(exception instanceof CompletionException ? exception.getCause() : exception);
+                });
+        }
+    }
+
+    // lists a directory, then loads its files and sub-directories as separate tasks
+    private final class LoadTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path path;
+        private final LoadProgress progress;
+
+        private LoadTask(final Path path, final LoadProgress progress){
+            this.path     = path;
+            this.progress = progress;
+        }
+
+        @Override
+        protected final void compute(){
+            if(isClosed) return;
+            final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            try{
+                if(loadingOption == ByteLoadingOption.WATCHLOAD)
+                    watcher.register(path, DirectoryEntry.this, DirectoryEntry.this::onEvent);
+                try(final DirectoryStream<Path> stream = Files.newDirectoryStream(path)){
+                    for(final Path child : stream){
+                        if(Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)){
+                            if(isWalkthrough)
+                                tasks.add(new LoadTask(child, progress));
+                        }else if(Files.isRegularFile(child)){
+                            progress.found();
+                            tasks.add(ForkJoinTask.adapt(() -> {
+                                if(isClosed) return;
+                                addDirectoryFile(child.toFile());
+                                progress.loaded();
+                            }));
                         }
-                    });
-                }catch(final IOException e){
-                    throw new UncheckedIOException(e);
+                    }
+                }
+            }catch(final IOException e){
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(tasks);
+        }
+
+    }
+
+    // adds the files in a directory, watching it first for watchload so no file is missed
+    private void addFiles(final Path path) throws IOException{
+        final boolean watch = loadingOption == ByteLoadingOption.WATCHLOAD;
+        if(!isWalkthrough){
+            if(watch)
+                watcher.register(path, this, this::onEvent);
+            final File[] listFiles = Objects.requireNonNullElse(path.toFile().listFiles(File::isFile), new File[0]);
+            for(final File file : listFiles)
+                addFile(file);
+        }else{
+            Files.walkFileTree(path, new SimpleFileVisitor<>() {
+                @Override
+                public final FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException{
+                    if(watch)
+                        watcher.register(dir, DirectoryEntry.this, DirectoryEntry.this::onEvent);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public final FileVisitResult visitFile(final Path path, final BasicFileAttributes attrs){
+                    addDirectoryFile(path.toFile());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    // adds the files in a directory and records them in the next index; unchanged directories are not listed and unchanged files are not read
+    private void addIndexedFiles(final Path path, final StartupIndex previous, final StartupIndex next) throws IOException{
+        if(loadingOption == ByteLoadingOption.WATCHLOAD)
+            watcher.register(path, this, this::onEvent);
+
+        final String relative = directoryPath.relativize(path).toString();
+        final File dir        = path.toFile();
+        final long modified   = dir.lastModified();
+        final StartupIndex.Directory recorded = previous != null ? previous.get(relative) : null;
+
+        final List<String> directories       = new ArrayList<>();
+        final List<StartupIndex.Record> records = new ArrayList<>();
+        if(recorded != null && recorded.getLastModified() == modified){ // same names as before
+            for(final StartupIndex.Record record : recorded.getFiles())
+                addIndexedFile(new File(dir, record.getFileName()), record, records);
+            directories.addAll(recorded.getDirectories());
+        }else{
+            final Map<String,StartupIndex.Record> recordedFiles = new HashMap<>();
+            if(recorded != null)
+                for(final StartupIndex.Record record : recorded.getFiles())
+                    recordedFiles.put(record.getFileName(), record);
+            try(final DirectoryStream<Path> stream = Files.newDirectoryStream(path)){
+                for(final Path child : stream){
+                    final String fileName = child.getFileName().toString();
+                    if(Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS))
+                        directories.add(fileName);
+                    else if(Files.isRegularFile(child))
+                        addIndexedFile(child.toFile(), recordedFiles.get(fileName), records);
                 }
             }
         }
+        next.put(relative, new StartupIndex.Directory(modified, directories, records));
+
+        for(final String directory : directories){
+            final Path child = path.resolve(directory);
+            if(Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS))
+                addIndexedFiles(child, previous, next);
+        }
+    }
+
+    private void addIndexedFile(final File file, final StartupIndex.Record record, final List<StartupIndex.Record> records){
+        if(record != null && record.matches(file)){
+            files.computeIfAbsent(getContext(file, record.getName()), k -> new FileEntry(file, adapter, loadingOption, cache, stats, record));
+            records.add(record);
+        }else if(file.exists()){
+            final long size     = file.length();
+            final long modified = file.lastModified();
+            final String name   = adapter.getName(file);
+            final FileEntry entry = files.computeIfAbsent(getContext(file, name), k -> new FileEntry(file, adapter, loadingOption, cache, stats));
+            records.add(new StartupIndex.Record(file.getName(), name, size, modified, Objects.requireNonNullElse(entry.getETag(), "")));
+        }
     }
 
     // top level files
     private void addFile(final File file){
-        files.put(
+        files.computeIfAbsent(
             ContextUtil.getContext(adapter.getName(file), true, false),
-            new FileEntry(file, adapter, loadingOption)
+            k -> new FileEntry(file, adapter, loadingOption, cache, stats)
         );
     }
 
     // file in sub directories
     private void addDirectoryFile(final File file){
-        final String relative = directoryPath.relativize(file.toPath().getParent()).toString(); // attach the relative path (parent) to the adapted file name
-        files.put(
-            ContextUtil.joinContexts(true, false, relative, adapter.getName(file)),
-            new FileEntry(file, adapter, loadingOption)
+        files.computeIfAbsent(
+            getContext(file),
+            k -> new FileEntry(file, adapter, loadingOption, cache, stats)
         );
     }
 
+    private String getContext(final File file){
+        return getContext(file, adapter.getName(file));
+    }
+
+    private String getContext(final File file, final String name){
+        final String relative = directoryPath.relativize(file.toPath().getParent()).toString(); // attach the relative path (parent) to the adapted file name
+        return ContextUtil.joinContexts(true, false, relative, name);
+    }
+
+    // watchload only
+    private void onEvent(final WatchEvent.Kind<?> kind, final Path path){
+        if(kind != StandardWatchEventKinds.ENTRY_MODIFY) // names only change when files are created or deleted
+            index.invalidate();
+        if(kind == StandardWatchEventKinds.OVERFLOW){ // events were lost, check every file
+            files.forEach((context, entry) -> {
+                if(entry.getFile().exists())
+                    cache.remove(entry);
+                else if(files.remove(context, entry))
+                    cache.remove(entry);
+            });
+            try{
+                addFiles(path);
+            }catch(final IOException ignored){ }
+        }else if(kind == StandardWatchEventKinds.ENTRY_DELETE){ // drop the file or every file in the directory
+            files.forEach((context, entry) -> {
+                if(entry.getFile().toPath().startsWith(path) && files.remove(context, entry))
+                    cache.remove(entry);
+            });
+        }else{
+            final File file = path.toFile();
+            if(file.isFile()){
+                final FileEntry entry = files.get(getContext(file));
+                if(entry != null && entry.getFile().equals(file))
+                    cache.remove(entry); // read again on the next request
+                else
+                    addDirectoryFile(file);
+            }else if(isWalkthrough && kind == StandardWatchEventKinds.ENTRY_CREATE && file.isDirectory()){
+                try{
+                    addFiles(path);
+                }catch(final IOException ignored){ }
+            }
+        }
+    }
+
+    /**
+     * Stops watching and loading the directory and removes the bytes of every loaded file from the cache.
+     *
+     * @see ByteCache#remove(FileEntry)
+     * @see FileWatcher#unregister(Object)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void close(){
+        isClosed = true;
+        if(loadingOption == ByteLoadingOption.WATCHLOAD)
+            watcher.unregister(this);
+        files.values().forEach(cache::remove);
+    }
+
 //
 
     /**
@@ -163,11 +399,8 @@ class DirectoryEntry {
         final File targetFile = Paths.get(dabs, relative).toFile();
         final String fileName = targetFile.getParentFile() == null ? targetFile.getPath() : targetFile.getName();
 
-        // for each file in parent directory, run adapter to find file that matches adapted name
-        for(final File file : Objects.requireNonNullElse(parentFile.listFiles(), new File[0]))
-            if(fileName.equals(adapter.getName(file)))
-                return file;
-        return null;
+        // find file in parent directory that matches adapted name
+        return index.get(parentFile, fileName, relative);
     }
 
     /**
@@ -185,15 +418,18 @@ class DirectoryEntry {
     public final FileEntry getFileEntry(final String path){
         final String context  = ContextUtil.getContext(path, true, false);
         final FileEntry entry = files.get(context);
-        if(entry == null){ // add new entry if not already added and file exists
+        if(loadingOption == ByteLoadingOption.WATCHLOAD && !isLoading){ // files are added and removed by the file watcher
+            return entry;
+        }else if(entry == null){ // add new entry if not already added and file exists
             final File file = getFile(path);
             return file != null && file.exists()
                 ? loadingOption != ByteLoadingOption.LIVELOAD // only add to files if not liveload
-                    ? files.put(context, new FileEntry(file, adapter, loadingOption))
-                    : new FileEntry(file, adapter, loadingOption)
+                    ? files.computeIfAbsent(context, k -> new FileEntry(file, adapter, loadingOption, cache, stats))
+                    : new FileEntry(file, adapter, loadingOption, cache, stats)
                 : null;
         }else if(!entry.getFile().exists()){ // remove entry if file no longer exists
-            files.remove(context);
+            if(files.remove(context, entry))
+                cache.remove(entry);
             return null;
         }else{ // return existing if exists
             return entry;
@@ -249,6 +485,19 @@ class DirectoryEntry {
         return isWalkthrough;
     }
 
+    /**
+     * Returns how files in this directory are loaded and kept in memory.
+     *
+     * @return directory stats
+     *
+     * @see FileHandlerStats
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final FileHandlerStats getStats(){
+        return stats;
+    }
+
 //
 
     @Override
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver.handler;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Finds files by their adapted name for a {@link DirectoryEntry}, without listing the directory for every request. Applications do not use this class. <br>
+ * Each directory's adapted names are kept until the directory's last modified time changes, or until the file watcher reports a change for {@link ByteLoadingOption#WATCHLOAD}. Paths that were not found are remembered for a short time, or until their directory changes.
+ *
+ * @see DirectoryEntry
+ * @see FileHandlerAdapter#getName(File)
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+final class DirectoryIndex {
+
+    private static final int MAX_DIRECTORIES = 256;
+    private static final int MAX_MISSES = 1024;
+    private static final long MISS_TIME_MILLIS = 1000;
+
+    private final FileNameAdapter adapter;
+    private final boolean isWatched;
+
+    private final Map<File,Listing> listings = new LinkedHashMap<>(16, 0.75f, true){
+        @Override
+        protected final boolean removeEldestEntry(final Map.Entry<File,Listing> eldest){
+            return size() > MAX_DIRECTORIES;
+        }
+    };
+    private final Map<String,Long> misses = new LinkedHashMap<>(16, 0.75f, true){
+        @Override
+        protected final boolean removeEldestEntry(final Map.Entry<String,Long> eldest){
+            return size() > MAX_MISSES;
+        }
+    };
+
+    /**
+     * Creates a directory index.
+     *
+     * @param adapter how to name files
+     * @param isWatched if changes are reported by {@link #invalidate()} instead of the directory's last modified time
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    DirectoryIndex(final FileNameAdapter adapter, final boolean isWatched){
+        this.adapter   = adapter;
+        this.isWatched = isWatched;
+    }
+
+    private static final class Listing {
+
+        private final long lastModified;
+        private final Map<String,File> names;
+
+        private Listing(final long lastModified, final Map<String,File> names){
+            this.lastModified = lastModified;
+            this.names        = names;
+        }
+
+    }
+
+//
+
+    /**
+     * Returns the file in a directory with an adapted name.
+     *
+     * @param parent directory
+     * @param name adapted file name
+     * @param path path that was requested, to remember if there is no file
+     * @return file or null if there is none
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final File get(final File parent, final String name, final String path){
+        // the directory is checked before the misses, so a file created since the miss is found
+        final long lastModified = isWatched ? 0 : parent.lastModified();
+        Listing listing;
+        synchronized(this){
+            listing = listings.get(parent);
+        }
+        if(listing == null || listing.lastModified != lastModified){
+            listing = list(parent, lastModified);
+            synchronized(this){
+                if(listings.put(parent, listing) != null)
+                    misses.clear(); // directory changed
+            }
+        }
+
+        final long now = System.currentTimeMillis();
+        synchronized(this){
+            final Long expiry = misses.get(path);
+            if(expiry != null){
+                if(expiry > now) return null;
+                misses.remove(path);
+            }
+        }
+
+        final File file = listing.names.get(name);
+        if(file == null)
+            synchronized(this){
+                misses.put(path, now + MISS_TIME_MILLIS);
+            }
+        return file;
+    }
+
+    private Listing list(final File parent, final long lastModified){
+        final Map<String,File> names = new HashMap<>();
+        for(final File file : Objects.requireNonNullElse(parent.listFiles(), new File[0]))
+            names.putIfAbsent(adapter.getName(file), file);
+        return new Listing(lastModified, names);
+    }
+
+    /**
+     * Forgets every listed directory and missing path.
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    synchronized final void invalidate(){
+        listings.clear();
+        misses.clear();
+    }
+
+//
+
+    @Override
+    public String toString(){
+        return
+            "DirectoryIndex"    + '{' +
+            "isWatched"         + '=' +     isWatched +
+            '}';
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver.handler;
+
+import java.util.*;
+
+/**
+ * An immutable trie of directory contexts, split by path segment, used by the {@link FileHandler} to find the directory a request belongs to. Applications do not use this class. <br>
+ * A new trie is built whenever directories change, so lookups do not need to lock and do not allocate.
+ *
+ * @see FileHandler
+ * @see DirectoryEntry
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+final class DirectoryTrie {
+
+    static final DirectoryTrie EMPTY = new DirectoryTrie(new Node(null, new String[0], new Node[0]));
+
+    private final Node root;
+
+    private DirectoryTrie(final Node root){
+        this.root = root;
+    }
+
+    /**
+     * Creates a trie from directory contexts.
+     *
+     * @param contexts directory contexts, with a leading slash and without a trailing slash
+     * @return trie
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static DirectoryTrie build(final Collection<String> contexts){
+        final Builder root = new Builder();
+        for(final String context : contexts){
+            Builder node = root;
+            for(final String segment : context.split("/"))
+                if(!segment.isEmpty())
+                    node = node.children.computeIfAbsent(segment, k -> new Builder());
+            node.context = context;
+        }
+        return new DirectoryTrie(root.build());
+    }
+
+    /**
+     * Returns the longest directory context that the request context is in. A directory only matches whole segments, so <code>/static</code> matches <code>/static/file</code> but not <code>/staticfile</code>.
+     *
+     * @param context request context, with a leading slash and without a trailing slash
+     * @return directory context or null if there is no match
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final String match(final String context){
+        Node node = root;
+        String match = node.context;
+        final int len = context.length();
+        int start = 0;
+        while(start < len){
+            if(context.charAt(start) == '/'){
+                start++;
+                continue;
+            }
+            int end = context.indexOf('/', start);
+            if(end == -1) end = len;
+
+            final int index = node.indexOf(context, start, end);
+            if(index < 0) break;
+            node = node.children[index];
+            if(node.context != null)
+                match = node.context;
+            start = end;
+        }
+        return match;
+    }
+
+    private static final class Node {
+
+        private final String context; // directory context, if a directory is added here
+        private final String[] segments; // sorted
+        private final Node[] children;
+
+        private Node(final String context, final String[] segments, final Node[] children){
+            this.context  = context;
+            this.segments = segments;
+            this.children = children;
+        }
+
+        // binary search of the segments for context[start, end)
+        private int indexOf(final String context, final int start, final int end){
+            int low = 0, high = segments.length - 1;
+            while(low <= high){
+                final int mid = (low + high) >>> 1;
+                final int cmp = compare(segments[mid], context, start, end);
+                if(cmp < 0)
+                    low = mid + 1;
+                else if(cmp > 0)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+            return -1;
+        }
+
+        // same order as String#compareTo
+        private static int compare(final String segment, final String context, final int start, final int end){
+            final int len = end - start;
+            final int min = Math.min(segment.length(), len);
+            for(int i = 0; i < min; i++){
+                final char a = segment.charAt(i), b = context.charAt(start + i);
+                if(a != b)
+                    return a - b;
+            }
+            return segment.length() - len;
+        }
+
+    }
+
+    private static final class Builder {
+
+        private final TreeMap<String,Builder> children = new TreeMap<>();
+        private String context;
+
+        private Node build(){
+            final String[] segments = children.keySet().toArray(new String[0]);
+            final Node[] nodes = new Node[segments.length];
+            for(int i = 0; i < segments.length; i++)
+                nodes[i] = children.get(segments[i]).build();
+            return new Node(context, segments, nodes);
+        }
+
+    }
+
+}
@@ -18,10 +18,15 @@
 
 package com.kttdevelopment.simplehttpserver.handler;
 
+import com.kttdevelopment.simplehttpserver.ResponseCompression;
+
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
-import java.util.Arrays;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Represent a file in the {@link FileHandler}. Applications do not use this class.
@@ -29,20 +34,31 @@ import java.util.concurrent.atomic.AtomicLong;
  * @see ByteLoadingOption
  * @see FileHandler
  * @since 02.00.00
- * @version 4.0.0
+ * @version 4.5.0
  * @author Ktt Development
  */
 class FileEntry {
 
+    // precompressed sibling file extensions and their content coding, in order of preference
+    private static final String[][] siblings = {{".br", "br"}, {".gz", "gzip"}};
+
     private final File file;
     private final FileBytesAdapter adapter;
     private final ByteLoadingOption loadingOption;
+    private final ByteCache cache;
+    private final FileHandlerStats stats;
+    private final String contentType;
+
+    private final AtomicReference<Content> content = new AtomicReference<>(); // non liveload only, set by the cache
+    private volatile boolean reloading = false;
 
-    private byte[] bytes = null;
+    // from the startup index, only until the file is loaded, since the adapter may change the bytes without changing the file
+    private final String indexedETag;
 
     private final AtomicLong lastModified = new AtomicLong();
     private final AtomicLong expiry = new AtomicLong(0); // cache only
     private final long cacheTime; // cache only
+    private final long maxStale; // cache only
 
     /**
      * Creates a file entry.
@@ -50,31 +66,252 @@ class FileEntry {
      * @param file file to represent
      * @param bytesAdapter how to process the bytes in {@link #getBytes()}
      * @param loadingOption how to handle the initial file loading
+     * @param cache where loaded bytes are kept
+     * @param stats where loading is counted
      *
      * @see FileBytesAdapter
      * @see ByteLoadingOption
+     * @see ByteCache
+     * @see FileHandlerStats
      * @since 03.05.00
      * @author Ktt Development
      */
-    FileEntry(final File file, final FileBytesAdapter bytesAdapter, final ByteLoadingOption loadingOption){
+    FileEntry(final File file, final FileBytesAdapter bytesAdapter, final ByteLoadingOption loadingOption, final ByteCache cache, final FileHandlerStats stats){
+        this(file, bytesAdapter, loadingOption, cache, stats, null, null);
+    }
+
+    /**
+     * Creates a file entry for a file that is unchanged since it was recorded in a {@link StartupIndex}. The file is not read until it is requested, and the recorded entity tag is used if the file is still unchanged when it is read.
+     *
+     * @param file file to represent
+     * @param bytesAdapter how to process the bytes in {@link #getBytes()}
+     * @param loadingOption how to handle the initial file loading
+     * @param cache where loaded bytes are kept
+     * @param stats where loading is counted
+     * @param record recorded file, or null to load the file normally
+     *
+     * @see FileBytesAdapter
+     * @see ByteLoadingOption
+     * @see ByteCache
+     * @see FileHandlerStats
+     * @see StartupIndex
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    FileEntry(final File file, final FileBytesAdapter bytesAdapter, final ByteLoadingOption loadingOption, final ByteCache cache, final FileHandlerStats stats, final StartupIndex.Record record){
+        this(file, bytesAdapter, loadingOption, cache, stats, record, null);
+    }
+
+    /**
+     * Creates a file entry that is read again after the file system reports it was changed. The file is watched before it is first read, so a change while it is read is not missed.
+     *
+     * @param file file to represent
+     * @param bytesAdapter how to process the bytes in {@link #getBytes()}
+     * @param loadingOption how to handle the initial file loading
+     * @param cache where loaded bytes are kept
+     * @param stats where loading is counted
+     * @param watcher where the file is watched, it is unregistered using this entry
+     * @throws UncheckedIOException failure to watch or read the file
+     *
+     * @see ByteLoadingOption#WATCHLOAD
+     * @see FileWatcher
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    FileEntry(final File file, final FileBytesAdapter bytesAdapter, final ByteLoadingOption loadingOption, final ByteCache cache, final FileHandlerStats stats, final FileWatcher watcher){
+        this(file, bytesAdapter, loadingOption, cache, stats, null, watcher);
+    }
+
+    private FileEntry(final File file, final FileBytesAdapter bytesAdapter, final ByteLoadingOption loadingOption, final ByteCache cache, final FileHandlerStats stats, final StartupIndex.Record record, final FileWatcher watcher){
         if(loadingOption == ByteLoadingOption.CACHELOAD && !(bytesAdapter instanceof CacheFileAdapter))
             throw new IllegalArgumentException("CacheLoad option must use a cache file adapter");
 
         this.file           = file;
         this.adapter        = bytesAdapter;
         this.loadingOption  = loadingOption;
+        this.cache          = cache;
+        this.stats          = stats;
+        this.contentType    = MimeTypes.getContentType(file.getName());
         this.cacheTime      = bytesAdapter instanceof CacheFileAdapter ? ((CacheFileAdapter) bytesAdapter).getCacheTimeMillis() : -1;
+        this.maxStale       = bytesAdapter instanceof CacheFileAdapter ? ((CacheFileAdapter) bytesAdapter).getMaxStaleMillis() : 0;
+        this.indexedETag    = record != null && !record.getETag().isEmpty() ? record.getETag() : null;
 
         if(loadingOption != ByteLoadingOption.LIVELOAD && loadingOption != ByteLoadingOption.CACHELOAD){
+            if(loadingOption == ByteLoadingOption.MODLOAD || loadingOption == ByteLoadingOption.MMAP){
+                lastModified.set(record != null ? record.getLastModified() : file.lastModified());
+            }
+            if(watcher != null)
+                watch(watcher);
             try{
-                bytes = adapter.getBytes(file, Files.readAllBytes(file.toPath()));
-            }catch(final Throwable ignored){
-                bytes = null;
+                if(record == null)
+                    loadBytes();
+            }catch(final UncheckedIOException e){
+                if(watcher != null)
+                    watcher.unregister(this);
+                throw e;
+            }
+        }
+    }
+
+    // reads the file again after it is changed, or after events were lost
+    private void watch(final FileWatcher watcher){
+        final Path path = file.toPath().toAbsolutePath().normalize();
+        try{
+            watcher.register(path.getParent(), this, (kind, changed) -> {
+                if(kind == StandardWatchEventKinds.OVERFLOW || changed.equals(path))
+                    cache.remove(this);
+            });
+        }catch(final IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the content is returned even if the cache does not keep it
+    private Content loadBytes(){
+        final Content loaded = loadingOption == ByteLoadingOption.MMAP ? mapBytes() : readBytes();
+        if(cache.admit(this, loaded) && loadingOption == ByteLoadingOption.CACHELOAD)
+            ((CacheFileAdapter) adapter).schedule(this);
+        return loaded;
+    }
+
+    // reads and adapts the file, then creates its compressed variants
+    private Content readBytes(){
+        try{
+            final long modified = file.lastModified(); // before reading, so a change during the read is not missed
+            final boolean streamed = adapter instanceof FileStreamAdapter;
+            final byte[] raw = streamed ? stream() : read(file);
+            final byte[] bytes = adapt(raw);
+            return bytes != null
+                ? new Content(cache.store(bytes), loadEncodings(bytes, !streamed && bytes == raw), Validators.strongETag(bytes), modified)
+                : Content.EMPTY;
+        }catch(final Throwable ignored){
+            return Content.EMPTY;
+        }
+    }
+
+    // maps the file and its precompressed siblings, the mapped bytes are backed by the page cache instead of the heap
+    private Content mapBytes(){
+        try{
+            final long modified = file.lastModified(); // before mapping, so a change during the mapping is not missed
+            final ByteBuffer body = map(file);
+            final Map<String,ByteBuffer> encodings = new LinkedHashMap<>();
+            for(final String[] extension : siblings){
+                final File sibling = new File(file.getPath() + extension[0]);
+                if(sibling.isFile() && sibling.lastModified() >= modified){ // skip stale variants
+                    try{
+                        encodings.put(extension[1], map(sibling));
+                    }catch(final IOException ignored){ }
+                }
             }
-            if(loadingOption != ByteLoadingOption.PRELOAD){
-                lastModified.set(file.lastModified());
+            // hashing the file would read all of it, so the validator is weak
+            return new Content(body, encodings.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(encodings), Validators.weakETag(modified, body.capacity()), modified, true);
+        }catch(final Throwable ignored){
+            return Content.EMPTY;
+        }
+    }
+
+    private ByteBuffer map(final File file) throws IOException{
+        final long start = System.nanoTime();
+        try(final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // mapping stays valid after the channel is closed
+        }finally{
+            stats.read(System.nanoTime() - start);
+        }
+    }
+
+    private byte[] read(final File file) throws IOException{
+        final long start = System.nanoTime();
+        try{
+            return Files.readAllBytes(file.toPath());
+        }finally{
+            stats.read(System.nanoTime() - start);
+        }
+    }
+
+    // reads the file through the stream adapter
+    private byte[] stream() throws IOException{
+        final long start = System.nanoTime();
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try(final InputStream IN = Files.newInputStream(file.toPath()); final OutputStream OUT = ((FileStreamAdapter) adapter).getOutputStream(file, buffer)){
+            IN.transferTo(OUT);
+        }finally{
+            stats.adapted(System.nanoTime() - start);
+        }
+        return buffer.toByteArray();
+    }
+
+    private byte[] adapt(final byte[] raw){
+        final long start = System.nanoTime();
+        try{
+            return adapter.getBytes(file, raw);
+        }finally{
+            stats.adapted(System.nanoTime() - start);
+        }
+    }
+
+    // sibling precompressed files are used if the adapters did not change the bytes, otherwise compressible files are gzipped once here
+    private Map<String,ByteBuffer> loadEncodings(final byte[] adapted, final boolean unchanged){
+        final Map<String,ByteBuffer> OUT = new LinkedHashMap<>();
+        if(unchanged){
+            final long modified = file.lastModified();
+            for(final String[] extension : siblings){
+                final File sibling = new File(file.getPath() + extension[0]);
+                if(sibling.isFile() && sibling.lastModified() >= modified){ // skip stale variants
+                    try{
+                        OUT.put(extension[1], cache.store(read(sibling)));
+                    }catch(final IOException ignored){ }
+                }
             }
         }
+
+        final ResponseCompression compression = ResponseCompression.getDefault();
+        if(!OUT.containsKey("gzip") && contentType != null && adapted.length >= compression.getMinimumSize() && compression.isCompressible(contentType)){
+            final byte[] gzip = compression.compress(adapted, "gzip");
+            if(gzip.length < adapted.length)
+                OUT.put("gzip", cache.store(gzip));
+        }
+        return OUT.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(OUT);
+    }
+
+    /**
+     * Keeps loaded content. Only the {@link ByteCache} uses this.
+     *
+     * @param content loaded content
+     *
+     * @see #release()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void retain(final Content content){
+        stats.resident(content.getWeight() - weigh(this.content.getAndSet(content)));
+    }
+
+    /**
+     * Drops loaded content, it will be loaded again when it is next requested. Only the {@link ByteCache} uses this.
+     *
+     * @see #retain(Content)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void release(){
+        stats.resident(-weigh(content.getAndSet(null)));
+    }
+
+    /**
+     * Drops loaded content to make room for other files. Only the {@link ByteCache} uses this.
+     *
+     * @see #release()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void evict(){
+        if(content.get() != null)
+            stats.evict();
+        release();
+    }
+
+    private static long weigh(final Content content){
+        return content != null ? content.getWeight() : 0;
     }
 
 //
@@ -101,13 +338,48 @@ class FileEntry {
     public synchronized final void reloadBytes(){
         if(loadingOption == ByteLoadingOption.PRELOAD || loadingOption == ByteLoadingOption.LIVELOAD)
             throw new UnsupportedOperationException();
-        else
+        lastModified.set(file.lastModified());
+        stats.reload();
+        loadBytes();
+    }
+
+    // only the first request that saw the stale content reloads it, requests waiting behind it get its result
+    private synchronized Content reload(final Content stale){
+        final Content current = content.get();
+        if(current != null && current != stale) // already reloaded by another request
+            return current;
+        reloading = true;
+        try{
             lastModified.set(file.lastModified());
-            try{
-                bytes = adapter.getBytes(file, Files.readAllBytes(file.toPath()));
-            }catch(final Throwable ignored){
-                bytes = null;
-            }
+            if(stale != null)
+                stats.reload();
+            else // never loaded or cleared
+                stats.miss();
+            return loadBytes();
+        }finally{
+            reloading = false;
+        }
+    }
+
+    /**
+     * Loads expired content again, unless another request already did. Only the {@link CacheFileAdapter} uses this.
+     *
+     * @param stale content that expired
+     *
+     * @see CacheFileAdapter#revalidate(FileEntry, Content)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void revalidate(final Content stale){
+        reload(stale);
+    }
+
+    // loads content that was evicted from the cache
+    private synchronized Content load(){
+        final Content current = content.get();
+        if(current != null) return current;
+        stats.miss();
+        return loadBytes();
     }
 
     /**
@@ -122,7 +394,7 @@ class FileEntry {
             throw new UnsupportedOperationException();
         else{
             lastModified.set(0);
-            bytes = null;
+            cache.remove(this);
         }
     }
 
@@ -136,25 +408,91 @@ class FileEntry {
      * @author Ktt Development
      */
     public final byte[] getBytes(){
+        if(loadingOption == ByteLoadingOption.LIVELOAD){
+            stats.miss();
+            try{
+                return adapt(adapter instanceof FileStreamAdapter ? stream() : read(file)); // read and adapt bytes
+            }catch(final Throwable ignored){
+                return null;
+            }
+        }
+        return getContent().getBytes();
+    }
+
+    /**
+     * Returns the loaded bytes and everything created from them, loading them again if they were modified, expired, or evicted from the cache. <b>Doesn't work with LIVELOAD.</b> <br>
+     * Only one request reloads modified or expired bytes. While it does, other requests are given the previous bytes, or wait for the reload if there are none. Expired bytes within the {@link CacheFileAdapter}'s maximum staleness are reloaded in the background instead.
+     *
+     * @return loaded content
+     *
+     * @see #getBytes()
+     * @see ByteCache
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final Content getContent(){
+        cache.access(this);
         switch(loadingOption){
             case MODLOAD:
+            case MMAP:
             case CACHELOAD:
                 final long now = System.currentTimeMillis();
+                final Content seen = content.get();
+                final long expired = loadingOption == ByteLoadingOption.CACHELOAD ? now - expiry.getAndUpdate(was -> now + cacheTime) : 0;
+                final boolean modified = file.lastModified() != lastModified.get();
+                // serve expired bytes while they are loaded again in the background
+                if(expired > 0 && expired <= maxStale && seen != null && !modified){
+                    stats.hit();
+                    ((CacheFileAdapter) adapter).revalidate(this, seen);
+                    return seen;
+                }
                 // update the file if it was modified or now exceeds the expiry time
-                if((loadingOption == ByteLoadingOption.CACHELOAD && now > expiry.getAndUpdate(was -> now + cacheTime)) || file.lastModified() != lastModified.get())
-                    reloadBytes();
+                if(expired > 0 || modified){
+                    if(seen != null && reloading){
+                        stats.hit();
+                        return seen;
+                    }
+                    return reload(seen);
+                }
             case PRELOAD:
-                return bytes;
+            case WATCHLOAD: // changes are reported by the file watcher
+                final Content current = content.get();
+                if(current == null) return load();
+                stats.hit();
+                return current;
             default:
             case LIVELOAD:
-                try{
-                    return adapter.getBytes(file, Files.readAllBytes(file.toPath())); // read and adapt bytes
-                }catch(final Throwable ignored){
-                    return null;
-                }
+                throw new UnsupportedOperationException();
         }
     }
 
+    /**
+     * Returns the entity tag of the loaded bytes, or the one from the {@link StartupIndex} if the file was not loaded yet.
+     *
+     * @return entity tag or null if unknown
+     *
+     * @see Content#getETag()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final String getETag(){
+        final Content current = content.get();
+        return current != null ? current.getETag() : indexedETag;
+    }
+
+    /**
+     * Returns the content type of the file, resolved from its extension when the entry was created.
+     *
+     * @return content type or null if unknown
+     *
+     * @see MimeTypes
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final String getContentType(){
+        return contentType;
+    }
+
     /**
      * Returns the file's byte loading option.
      *
@@ -180,17 +518,169 @@ class FileEntry {
         return expiry.get();
     }
 
+    /**
+     * Clears the file's cached bytes if it has expired.
+     *
+     * @param now current time, in milliseconds
+     * @return if the file has expired
+     *
+     * @see #getExpiry()
+     * @see CacheFileAdapter#schedule(FileEntry)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    synchronized final boolean expire(final long now){
+        if(expiry.get() > now) return false;
+        if(content.get() != null)
+            stats.evict();
+        cache.remove(this);
+        return true;
+    }
+
 //
 
     @Override
     public String toString(){
+        final Content current = content.get();
         return
             "FileEntry"         + '{' +
             "file"              + '=' +     file            + ", " +
             "adapter"           + '=' +     adapter         + ", " +
             "loadingOption"     + '=' +     loadingOption   + ", " +
-            "bytes"             + '=' +     Arrays.toString(bytes) +
+            "bytes"             + '=' +     (current != null ? Arrays.toString(current.getBytes()) : null) +
             '}';
     }
 
+//
+
+    /**
+     * The bytes of a file and everything created from them when they were loaded. Applications do not use this class.
+     *
+     * @see FileEntry#getContent()
+     * @since 4.5.0
+     * @version 4.5.0
+     * @author Ktt Development
+     */
+    static final class Content {
+
+        // failed to read or adapt the file
+        private static final Content EMPTY = new Content(null, Collections.emptyMap(), null, 0, false);
+
+        private final ByteBuffer body;
+        private final Map<String,ByteBuffer> encodings;
+        private final String etag;
+        private final long lastModified;
+        private final boolean mapped;
+
+        private Content(final ByteBuffer body, final Map<String,ByteBuffer> encodings, final String etag, final long lastModified){
+            this(body, encodings, etag, lastModified, false);
+        }
+
+        private Content(final ByteBuffer body, final Map<String,ByteBuffer> encodings, final String etag, final long lastModified, final boolean mapped){
+            this.body         = body;
+            this.encodings    = encodings;
+            this.etag         = etag;
+            this.lastModified = lastModified;
+            this.mapped       = mapped;
+        }
+
+        /**
+         * Returns the file's bytes after the {@link FileBytesAdapter} was used. Bytes kept outside of the heap are copied.
+         *
+         * @return processed file bytes or null if the file could not be read
+         *
+         * @see #getBody()
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        final byte[] getBytes(){
+            return body != null ? toBytes(body) : null;
+        }
+
+        /**
+         * Returns the file's bytes after the {@link FileBytesAdapter} was used, without copying them. Each call returns a new view, so callers can move its position.
+         *
+         * @return processed file bytes or null if the file could not be read
+         *
+         * @see #getBytes()
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        final ByteBuffer getBody(){
+            return body != null ? body.duplicate() : null;
+        }
+
+        /**
+         * Returns the compressed variants of the bytes, by content coding. <br>
+         * Variants are read from sibling <code>.br</code> and <code>.gz</code> files that are not older than the file, or compressed once when the bytes are loaded.
+         *
+         * @return compressed bytes by content coding
+         *
+         * @see #toBytes(ByteBuffer)
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        final Map<String,ByteBuffer> getEncodings(){
+            return encodings;
+        }
+
+        /**
+         * Returns the strong entity tag of the bytes.
+         *
+         * @return entity tag or null
+         *
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        final String getETag(){
+            return etag;
+        }
+
+        /**
+         * Returns the last modified time of the file when its bytes were loaded.
+         *
+         * @return last modified time, in milliseconds, or 0 if unknown
+         *
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        final long getLastModified(){
+            return lastModified;
+        }
+
+        /**
+         * Returns how many bytes are kept in memory, including the compressed variants. Mapped files are backed by the page cache and weigh nothing.
+         *
+         * @return size in bytes
+         *
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        final long getWeight(){
+            if(mapped) return 0;
+            long weight = body != null ? body.capacity() : 0;
+            for(final ByteBuffer encoded : encodings.values())
+                weight += encoded.capacity();
+            return weight;
+        }
+
+        /**
+         * Returns the bytes of a buffer. A heap buffer returns its array, otherwise the bytes are copied onto the heap.
+         *
+         * @param buffer buffer
+         * @return bytes
+         *
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        static byte[] toBytes(final ByteBuffer buffer){
+            if(buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.remaining() == buffer.array().length)
+                return buffer.array();
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return bytes;
+        }
+
+    }
+
 }
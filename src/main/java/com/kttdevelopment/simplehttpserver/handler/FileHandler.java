@@ -24,10 +24,13 @@ import com.sun.net.httpserver.HttpExchange;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Consumer;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A request handler that processes files using the {@link FileHandlerAdapter}. <br>
@@ -43,15 +46,27 @@ import java.util.function.Consumer;
  * @see SimpleHttpHandler
  * @see com.sun.net.httpserver.HttpHandler
  * @since 02.00.00
- * @version 4.1.0
+ * @version 4.5.0
  * @author Ktt Development
  */
 public class FileHandler implements SimpleHttpHandler {
 
     private final FileHandlerAdapter adapter;
+    private final ByteCache cache;
+    private final FileHandlerStats stats = new FileHandlerStats(null);
+    private final FileWatcher watcher = new FileWatcher(); // watchload only
 
     private final Map<String,FileEntry> files = new ConcurrentHashMap<>();
     private final Map<String,DirectoryEntry> directories = new ConcurrentHashMap<>();
+    private volatile DirectoryTrie directoryTrie = DirectoryTrie.EMPTY; // rebuilt when directories change
+    private volatile File indexDirectory = null;
+
+    // loaded bytes can be written directly if the response is not overridden
+    private final boolean defaultHandle;
+    // live ranges can be read from disk if neither the adapter nor the response changes the file bytes
+    private final boolean liveRanges;
+    // live files can be streamed through the stream adapter into the response if the bytes adapter and the response do not change them
+    private final boolean liveStream;
 
     /**
      * Creates a file handler without a {@link FileHandlerAdapter}. This will use the files name and bytes.
@@ -60,17 +75,30 @@ public class FileHandler implements SimpleHttpHandler {
      * @author Ktt Development
      */
     public FileHandler(){
-        this.adapter = new FileHandlerAdapter() {
-            @Override
-            public final byte[] getBytes(final File file, final byte[] bytes){
-                return bytes;
-            }
+        this(Long.MAX_VALUE);
+    }
 
+    /**
+     * Creates a file handler without a {@link FileHandlerAdapter} that keeps at most a set number of file bytes in memory. This will use the files name and bytes. <br>
+     * When the limit is reached, the least recently used files are evicted, unless they were requested more often than the file being loaded. Evicted files are read again when they are next requested.
+     *
+     * @param maximumCacheSize maximum bytes to keep in memory, including compressed variants
+     * @throws IllegalArgumentException if the maximum cache size is negative
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public FileHandler(final long maximumCacheSize){
+        this.adapter = new FileHandlerAdapter() {
             @Override
             public final String getName(final File file){
                 return FileHandler.this.getName(file);
             }
         };
+        cache         = new ByteCache(maximumCacheSize);
+        defaultHandle = isDefaultHandle();
+        liveRanges    = defaultHandle && isUnadapted() && !(adapter instanceof FileStreamAdapter);
+        liveStream    = defaultHandle && isUnadapted() && adapter instanceof FileStreamAdapter;
     }
 
     /**
@@ -83,11 +111,118 @@ public class FileHandler implements SimpleHttpHandler {
      * @author Ktt Development
      */
     public FileHandler(final FileHandlerAdapter adapter){
+        this(adapter, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a file handler with a {@link FileHandler} that keeps at most a set number of file bytes in memory. This will use the adapted file name and bytes. <br>
+     * When the limit is reached, the least recently used files are evicted, unless they were requested more often than the file being loaded. Evicted files are read again when they are next requested.
+     *
+     * @param adapter adapter to get name and bytes
+     * @param maximumCacheSize maximum bytes to keep in memory, including compressed variants
+     * @throws IllegalArgumentException if the maximum cache size is negative
+     *
+     * @see FileHandlerAdapter
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public FileHandler(final FileHandlerAdapter adapter, final long maximumCacheSize){
         this.adapter = adapter;
+        cache         = new ByteCache(maximumCacheSize);
+        defaultHandle = isDefaultHandle();
+        liveRanges    = defaultHandle && isUnadapted() && !(adapter instanceof FileStreamAdapter);
+        liveStream    = defaultHandle && isUnadapted() && adapter instanceof FileStreamAdapter;
+    }
+
+    private boolean isUnadapted(){
+        try{
+            return adapter.getClass().getMethod("getBytes", File.class, byte[].class).getDeclaringClass() == FileBytesAdapter.class;
+        }catch(final NoSuchMethodException ignored){
+            return false;
+        }
+    }
+
+    private boolean isDefaultHandle(){
+        try{
+            return getClass().getMethod("handle", SimpleHttpExchange.class, File.class, byte[].class).getDeclaringClass() == FileHandler.class;
+        }catch(final NoSuchMethodException ignored){
+            return false;
+        }
     }
 
 //
 
+    /**
+     * Sets where walked directories added after this keep a startup index. <br>
+     * The index records each directory and file that was found. When the same directory is added again, directories that were not modified are not listed, and files with the same size and last modified time are not read until they are requested. Each directory has its own index for each handler and adapter class, loading option, and context it is added with. The index assumes an adapter of the same class names and adapts files the same way as before.
+     *
+     * @param indexDirectory directory to write index files to, or null to not use an index
+     *
+     * @see #addDirectory(String, File, String, ByteLoadingOption, boolean)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final void setIndexDirectory(final File indexDirectory){
+        this.indexDirectory = indexDirectory;
+    }
+
+    /**
+     * Sets if file bytes loaded after this are kept outside of the heap. <br>
+     * Off heap bytes are kept in direct buffers, so heap usage does not grow with the size of the files. Unless {@link #handle(SimpleHttpExchange, File, byte[])} is overridden, responses are written from the buffers without copying them back onto the heap. Files that were already loaded keep their bytes where they are until they are loaded again.
+     *
+     * @param offHeapStorage if file bytes should be kept outside of the heap
+     *
+     * @see #isOffHeapStorage()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final void setOffHeapStorage(final boolean offHeapStorage){
+        cache.setOffHeap(offHeapStorage);
+    }
+
+    /**
+     * Returns if file bytes loaded after this are kept outside of the heap.
+     *
+     * @return if file bytes are kept outside of the heap
+     *
+     * @see #setOffHeapStorage(boolean)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final boolean isOffHeapStorage(){
+        return cache.isOffHeap();
+    }
+
+    /**
+     * Returns how the files of this handler are loaded and kept in memory, including files in directories.
+     *
+     * @return handler stats
+     *
+     * @see FileHandlerStats
+     * @see #getStats(String)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final FileHandlerStats getStats(){
+        return stats;
+    }
+
+    /**
+     * Returns how the files of a directory are loaded and kept in memory.
+     *
+     * @param full_context context and directory name
+     * @return directory stats, or null if there is no directory at that context
+     *
+     * @see FileHandlerStats
+     * @see #getStats()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final FileHandlerStats getStats(final String full_context){
+        final DirectoryEntry entry = directories.get(ContextUtil.getContext(full_context, true, false));
+        return entry != null ? entry.getStats() : null;
+    }
+
     /**
      * Adds a file to the handler.
      *
@@ -254,13 +389,21 @@ public class FileHandler implements SimpleHttpHandler {
      */
     public final void addFile(final String context, final File file, final String fileName, final ByteLoadingOption loadingOption){
         try{
-            files.put(
-                ContextUtil.joinContexts(true, false, context, fileName),
-                new FileEntry(file, adapter, loadingOption)
-            );
+            final FileEntry entry = loadingOption == ByteLoadingOption.WATCHLOAD
+                ? new FileEntry(file, adapter, loadingOption, cache, stats, watcher)
+                : new FileEntry(file, adapter, loadingOption, cache, stats);
+            final FileEntry previous = files.put(ContextUtil.joinContexts(true, false, context, fileName), entry);
+            if(previous != null)
+                remove(previous);
         }catch(final UncheckedIOException ignored){ }
     }
 
+    private void remove(final FileEntry entry){
+        if(entry.getLoadingOption() == ByteLoadingOption.WATCHLOAD)
+            watcher.unregister(entry);
+        cache.remove(entry);
+    }
+
     //
 
     /**
@@ -801,13 +944,73 @@ public class FileHandler implements SimpleHttpHandler {
     public final void addDirectory(final String context, final File directory, final String directoryName, final ByteLoadingOption loadingOption, final boolean walk){
         try{
             final String target = ContextUtil.joinContexts(true, false, context, directoryName);
-            directories.put(
-                target,
-                new DirectoryEntry(directory, adapter, loadingOption, walk)
-            );
+            final File index = indexDirectory;
+            final String key = StartupIndex.getKey(directory, this, adapter, loadingOption, target);
+            putDirectory(target, new DirectoryEntry(
+                directory, adapter, loadingOption, walk, cache, stats, watcher, null, null,
+                index != null ? new File(index, UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)) + ".index") : null,
+                key
+            ));
         }catch(final UncheckedIOException ignored){}
     }
 
+    /**
+     * Adds a directory to the handler at a specified context with a specified name, loading its files in parallel on the common pool. Requests are handled while the files load; files that are not loaded yet are loaded when requested.
+     *
+     * @param context context to use
+     * @param directory directory to add
+     * @param directoryName directory name to use
+     * @param loadingOption file loading option
+     * @param walk whether to use sub-directories or not
+     * @return loading progress
+     *
+     * @see ByteLoadingOption
+     * @see LoadProgress
+     * @see #addDirectory(String, File, String, ByteLoadingOption, boolean)
+     * @see #addDirectoryAsync(String, File, String, ByteLoadingOption, boolean, ForkJoinPool)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final LoadProgress addDirectoryAsync(final String context, final File directory, final String directoryName, final ByteLoadingOption loadingOption, final boolean walk){
+        return addDirectoryAsync(context, directory, directoryName, loadingOption, walk, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Adds a directory to the handler at a specified context with a specified name, loading its files in parallel. Requests are handled while the files load; files that are not loaded yet are loaded when requested.
+     *
+     * @param context context to use
+     * @param directory directory to add
+     * @param directoryName directory name to use
+     * @param loadingOption file loading option
+     * @param walk whether to use sub-directories or not
+     * @param pool where to walk through directories and load files
+     * @return loading progress
+     *
+     * @see ByteLoadingOption
+     * @see LoadProgress
+     * @see #addDirectory(String, File, String, ByteLoadingOption, boolean)
+     * @see #addDirectoryAsync(String, File, String, ByteLoadingOption, boolean)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final LoadProgress addDirectoryAsync(final String context, final File directory, final String directoryName, final ByteLoadingOption loadingOption, final boolean walk, final ForkJoinPool pool){
+        final LoadProgress progress = new LoadProgress();
+        putDirectory(
+            ContextUtil.joinContexts(true, false, context, directoryName),
+            new DirectoryEntry(directory, adapter, loadingOption, walk, cache, stats, watcher, Objects.requireNonNull(pool), progress, null, null)
+        );
+        return progress;
+    }
+
+    private void putDirectory(final String target, final DirectoryEntry entry){
+        synchronized(directories){
+            final DirectoryEntry previous = directories.put(target, entry);
+            if(previous != null)
+                previous.close();
+            directoryTrie = DirectoryTrie.build(directories.keySet());
+        }
+    }
+
 //
 
     /**
@@ -821,7 +1024,9 @@ public class FileHandler implements SimpleHttpHandler {
      * @author Ktt Development
      */
     public final void removeFile(final String full_context){
-        files.remove(ContextUtil.getContext(full_context, true, false));
+        final FileEntry entry = files.remove(ContextUtil.getContext(full_context, true, false));
+        if(entry != null)
+            remove(entry);
     }
 
     /**
@@ -862,7 +1067,12 @@ public class FileHandler implements SimpleHttpHandler {
      * @author Ktt Development
      */
     public final void removeDirectory(final String full_context){
-        directories.remove(ContextUtil.getContext(full_context, true, false));
+        synchronized(directories){
+            final DirectoryEntry entry = directories.remove(ContextUtil.getContext(full_context, true, false));
+            if(entry != null)
+                entry.close();
+            directoryTrie = DirectoryTrie.build(directories.keySet());
+        }
     }
 
     /**
@@ -907,43 +1117,130 @@ public class FileHandler implements SimpleHttpHandler {
         final String context = URLDecoder.decode(ContextUtil.getContext(exchange.getURI().getPath().substring(exchange.getHttpContext().getPath().length()), true, false), StandardCharsets.UTF_8);
 
         if(files.containsKey(context)){ // exact file match
-            final FileEntry entry = files.get(context);
-            handle(exchange, entry.getFile(), entry.getBytes());
+            handle(exchange, files.get(context));
         }else{ // leading directory match
-            String match = "";
-            for(final String key : directories.keySet())
-                if(context.startsWith(key) && key.startsWith(match))
-                    match = key;
+            final String match = directoryTrie.match(context);
+            final DirectoryEntry dir = match != null ? directories.get(match) : null;
 
-            if(match.isEmpty()){ // no match
+            if(dir == null){ // no match
                 handle(exchange, null, null);
             }else{ // get file from matching directory
-                final DirectoryEntry dir = directories.get(match);
-                String rel = context.substring(match.length());
+                final String rel = context.substring(match.length());
 
                 final FileEntry entry = dir.getFileEntry(rel);
 
-                handle(
-                    exchange,
-                    entry == null ? dir.getFile(rel) : entry.getFile(),
-                    entry == null ? dir.getBytes(rel) : entry.getBytes()
-                );
+                if(entry != null)
+                    handle(exchange, entry);
+                else
+                    handle(exchange, dir.getFile(rel), dir.getBytes(rel));
             }
         }
         exchange.close();
+    }
+
+    // for the default handle, sends validators and uses a compressed variant of the file if the client accepts one
+    private void handle(final SimpleHttpExchange exchange, final FileEntry entry) throws IOException{
+        final File file = entry.getFile();
+        final boolean isRange = exchange.getRequestHeaders().containsKey("Range");
+        final String contentType = entry.getContentType();
+        if(contentType != null)
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+
+        if(entry.getLoadingOption() == ByteLoadingOption.LIVELOAD){
+            // validated without reading the file
+            final long lastModified = file.lastModified();
+            if(defaultHandle && lastModified > 0 && Validators.handle(exchange, Validators.weakETag(lastModified, file.length()), lastModified))
+                return;
+            if(isRange && liveRanges && handleLiveRange(exchange, file))
+                return;
+            if(liveStream && handleLiveStream(exchange, file))
+                return;
+            handle(exchange, file, entry.getBytes());
+            return;
+        }
+
+        final FileEntry.Content content = entry.getContent();
+        ByteBuffer body = content.getBody();
+        if(body == null){
+            handle(exchange, file, null);
+            return;
+        }
+        if(!defaultHandle){ // an overridden handle decides the response, so it gets the unencoded bytes and no validators
+            handle(exchange, file, FileEntry.Content.toBytes(body));
+            return;
+        }
 
-        // cache only
-        final long now;
-        if(adapter instanceof CacheFileAdapter && ((CacheFileAdapter) adapter).getCacheTimeMillis() < (now = System.currentTimeMillis())){ // if lowest cached elapsed
-            final Consumer<FileEntry> update = entry -> {
-                if(entry.getLoadingOption() == ByteLoadingOption.CACHELOAD && entry.getExpiry() < now) // clear bytes from files where cache time elapsed
-                    entry.clearBytes();
-                ((CacheFileAdapter) adapter).updateClosestExpiry(entry.getExpiry()); // check if lowest expiry needs to be changed
-            };
-
-            files.values().forEach(update);
-            directories.values().forEach(dir -> dir.getFiles().values().forEach(update));
+        String etag = content.getETag();
+        final Map<String,ByteBuffer> encodings = content.getEncodings();
+        if(!encodings.isEmpty()){
+            ResponseCompression.addVary(exchange.getResponseHeaders());
+            final List<String> acceptEncoding = exchange.getRequestHeaders().get("Accept-Encoding");
+            // only send an encoding the client asked for, ranges are always of the unencoded file
+            final String encoding = acceptEncoding == null || isRange ? null : ResponseCompression.getPreferredEncoding(acceptEncoding, List.copyOf(encodings.keySet()));
+            if(encoding != null){
+                exchange.getResponseHeaders().set("Content-Encoding", encoding);
+                etag = etag != null ? Validators.encodedETag(etag, encoding) : null;
+                body = encodings.get(encoding).duplicate();
+            }
         }
+        if(!Validators.handle(exchange, etag, content.getLastModified()))
+            send(exchange, body);
+    }
+
+    // same response as the default handle, but writes the buffer without copying it onto the heap
+    private void send(final SimpleHttpExchange exchange, final ByteBuffer body) throws IOException{
+        final int length = body.remaining();
+        if(!exchange.getResponseHeaders().containsKey("Content-Encoding")){
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            final List<long[]> ranges = ByteRanges.getRanges(exchange, length);
+            if(ranges != null){
+                ByteRanges.send(exchange, ranges, length, ByteRanges.of(body));
+                return;
+            }
+        }
+        exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, length);
+        try(final OutputStream OUT = exchange.getOutputStream()){
+            ByteRanges.of(body).write(OUT, 0, length);
+        }
+    }
+
+    // reads only the requested ranges from disk, returns false if the full file should be sent instead
+    private boolean handleLiveRange(final SimpleHttpExchange exchange, final File file) throws IOException{
+        final FileChannel channel;
+        try{
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }catch(final IOException ignored){
+            return false;
+        }
+        try(channel){
+            final long length = channel.size();
+            final List<long[]> ranges = ByteRanges.getRanges(exchange, length);
+            if(ranges == null) return false;
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            ByteRanges.send(exchange, ranges, length, ByteRanges.of(channel));
+            return true;
+        }
+    }
+
+    // streams the file through the stream adapter into the response, returns false if the file can not be read
+    private boolean handleLiveStream(final SimpleHttpExchange exchange, final File file) throws IOException{
+        final InputStream IN;
+        try{
+            IN = Files.newInputStream(file.toPath());
+        }catch(final IOException ignored){
+            return false;
+        }
+        stats.miss();
+        final long start = System.nanoTime();
+        try(IN){
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0); // length is only known after the file is transformed
+            try(final OutputStream OUT = ((FileStreamAdapter) adapter).getOutputStream(file, exchange.getOutputStream())){
+                IN.transferTo(OUT);
+            }
+        }finally{
+            stats.adapted(System.nanoTime() - start);
+        }
+        return true;
     }
 
     @Override
@@ -952,7 +1249,10 @@ public class FileHandler implements SimpleHttpHandler {
     }
 
     /**
-     * Handles a file and gives a response.
+     * Handles a file and gives a response. The bytes are never compressed; compressed variants of added files are only sent if this method is not overridden. <br>
+     * The <code>Content-Type</code> response header is already set for added files with a known extension. <br>
+     * A <code>Range</code> request is answered with only the requested parts of the bytes, as a single part or <code>multipart/byteranges</code>. <br>
+     * <code>ETag</code> and <code>Last-Modified</code> validators are only sent, and matching requests only answered with <code>304 Not Modified</code>, if this method is not overridden.
      *
      * @param exchange the client information
      * @param source the file
@@ -963,6 +1263,14 @@ public class FileHandler implements SimpleHttpHandler {
      * @author Ktt Development
      */
     public void handle(final SimpleHttpExchange exchange, final File source, final byte[] bytes) throws IOException {
+        if(bytes != null && !exchange.getResponseHeaders().containsKey("Content-Encoding")){
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            final List<long[]> ranges = ByteRanges.getRanges(exchange, bytes.length);
+            if(ranges != null){
+                ByteRanges.send(exchange, ranges, bytes.length, ByteRanges.of(bytes));
+                return;
+            }
+        }
         exchange.send(bytes, HttpURLConnection.HTTP_OK);
     }
 
@@ -973,6 +1281,7 @@ public class FileHandler implements SimpleHttpHandler {
         return
             "FileHandler"           + '{' +
             "adapter"               + '=' +     adapter.toString()  + ", " +
+            "cache"                 + '=' +     cache               + ", " +
             "(loaded) files"        + '=' +     files               + ", " +
             "(loaded) directories"  + '=' +     directories         +
             '}';
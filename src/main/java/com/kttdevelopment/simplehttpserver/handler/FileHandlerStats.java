@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver.handler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how the files of a {@link FileHandler} or one of its directories are loaded and kept in memory. Counters are striped, so counting does not slow down concurrent requests. <br>
+ * A <b>hit</b> is a request served from bytes already in memory. A <b>miss</b> is a request that had to read the file, because it was never loaded, was evicted, or is loaded on each request. A <b>reload</b> is a file read again after it was modified or expired. An <b>eviction</b> is a file cleared from memory to make room or because it expired.
+ *
+ * @see FileHandler#getStats()
+ * @see FileHandler#getStats(String)
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+public final class FileHandlerStats {
+
+    private final FileHandlerStats parent;
+
+    private final LongAdder hits          = new LongAdder();
+    private final LongAdder misses        = new LongAdder();
+    private final LongAdder reloads       = new LongAdder();
+    private final LongAdder evictions     = new LongAdder();
+    private final LongAdder residentBytes = new LongAdder();
+    private final LongAdder adapterNanos  = new LongAdder();
+    private final LongAdder readNanos     = new LongAdder();
+
+    /**
+     * Creates stats.
+     *
+     * @param parent stats that also count everything counted here, or null
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    FileHandlerStats(final FileHandlerStats parent){
+        this.parent = parent;
+    }
+
+//
+
+    /**
+     * Counts a request served from bytes in memory.
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void hit(){
+        hits.increment();
+        if(parent != null) parent.hit();
+    }
+
+    /**
+     * Counts a request that had to read the file.
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void miss(){
+        misses.increment();
+        if(parent != null) parent.miss();
+    }
+
+    /**
+     * Counts a file read again after it was modified or expired.
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void reload(){
+        reloads.increment();
+        if(parent != null) parent.reload();
+    }
+
+    /**
+     * Counts a file cleared from memory.
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void evict(){
+        evictions.increment();
+        if(parent != null) parent.evict();
+    }
+
+    /**
+     * Counts bytes kept in memory, or released if negative.
+     *
+     * @param bytes change in resident bytes
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void resident(final long bytes){
+        if(bytes == 0) return;
+        residentBytes.add(bytes);
+        if(parent != null) parent.resident(bytes);
+    }
+
+    /**
+     * Counts time spent in the adapter.
+     *
+     * @param nanos time, in nanoseconds
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void adapted(final long nanos){
+        adapterNanos.add(nanos);
+        if(parent != null) parent.adapted(nanos);
+    }
+
+    /**
+     * Counts time spent reading a file.
+     *
+     * @param nanos time, in nanoseconds
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void read(final long nanos){
+        readNanos.add(nanos);
+        if(parent != null) parent.read(nanos);
+    }
+
+//
+
+    /**
+     * Returns how many requests were served from bytes in memory.
+     *
+     * @return hit count
+     *
+     * @see #getMissCount()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final long getHitCount(){
+        return hits.sum();
+    }
+
+    /**
+     * Returns how many requests had to read the file.
+     *
+     * @return miss count
+     *
+     * @see #getHitCount()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final long getMissCount(){
+        return misses.sum();
+    }
+
+    /**
+     * Returns how many times files were read again after they were modified or expired.
+     *
+     * @return reload count
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final long getReloadCount(){
+        return reloads.sum();
+    }
+
+    /**
+     * Returns how many times files were cleared from memory to make room or because they expired.
+     *
+     * @return eviction count
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final long getEvictionCount(){
+        return evictions.sum();
+    }
+
+    /**
+     * Returns how many bytes are kept in memory, including compressed variants. Mapped files are not counted.
+     *
+     * @return resident bytes
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final long getResidentBytes(){
+        return residentBytes.sum();
+    }
+
+    /**
+     * Returns the total time spent in the {@link FileBytesAdapter}.
+     *
+     * @param unit time unit
+     * @return adapter time
+     *
+     * @see TimeUnit
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final long getAdapterTime(final TimeUnit unit){
+        return unit.convert(adapterNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the total time spent reading and mapping files.
+     *
+     * @param unit time unit
+     * @return read time
+     *
+     * @see TimeUnit
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final long getReadTime(final TimeUnit unit){
+        return unit.convert(readNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+//
+
+    @Override
+    public String toString(){
+        return
+            "FileHandlerStats"  + '{' +
+            "hits"              + '=' +     hits            + ", " +
+            "misses"            + '=' +     misses          + ", " +
+            "reloads"           + '=' +     reloads         + ", " +
+            "evictions"         + '=' +     evictions       + ", " +
+            "residentBytes"     + '=' +     residentBytes   + ", " +
+            "adapterNanos"      + '=' +     adapterNanos    + ", " +
+            "readNanos"         + '=' +     readNanos       +
+            '}';
+    }
+
+}
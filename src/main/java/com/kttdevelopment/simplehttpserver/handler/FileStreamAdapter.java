@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver.handler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * This interface transforms file bytes as they are streamed, without holding the whole file. A {@link FileHandlerAdapter} that also implements this interface has its files streamed through it before {@link FileHandlerAdapter#getBytes(File, byte[])}. <br>
+ * {@link ByteLoadingOption#LIVELOAD} files are streamed from disk into the response on each request, unless {@link FileHandlerAdapter#getBytes(File, byte[])} or {@link FileHandler#handle(com.kttdevelopment.simplehttpserver.SimpleHttpExchange, File, byte[])} is overridden. Other loading options keep the transformed bytes, so files are only streamed when they are loaded. {@link ByteLoadingOption#MMAP} files are not transformed.
+ *
+ * <pre>{@code
+ * class MinifyingAdapter implements FileHandlerAdapter, FileStreamAdapter {
+ *
+ *     private final FileStreamAdapter pipeline = FileStreamAdapter.pipeline(minifier, headerInjector);
+ *
+ *     public String getName(File file){
+ *         return file.getName();
+ *     }
+ *
+ *     public OutputStream getOutputStream(File file, OutputStream OUT) throws IOException{
+ *         return pipeline.getOutputStream(file, OUT);
+ *     }
+ *
+ * }
+ * }</pre>
+ *
+ * @see FileHandlerAdapter
+ * @see FileHandler
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+public interface FileStreamAdapter {
+
+    /**
+     * Returns a stream that transforms the bytes written to it and writes the result to the output stream. Closing the returned stream must close the output stream.
+     *
+     * @param file file being streamed
+     * @param OUT where to write the transformed bytes
+     * @return stream to write file bytes to
+     * @throws IOException failure to start the transformation
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    OutputStream getOutputStream(final File file, final OutputStream OUT) throws IOException;
+
+    /**
+     * Returns an adapter that streams bytes through this adapter and then the next one.
+     *
+     * @param next adapter to stream the transformed bytes through
+     * @return combined adapter
+     *
+     * @see #pipeline(FileStreamAdapter...)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    default FileStreamAdapter andThen(final FileStreamAdapter next){
+        Objects.requireNonNull(next);
+        return (file, OUT) -> getOutputStream(file, next.getOutputStream(file, OUT));
+    }
+
+    /**
+     * Returns an adapter that streams bytes through each adapter in order.
+     *
+     * @param adapters adapters, in the order bytes pass through them
+     * @return combined adapter, which does not change the bytes if there are no adapters
+     *
+     * @see #andThen(FileStreamAdapter)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static FileStreamAdapter pipeline(final FileStreamAdapter... adapters){
+        FileStreamAdapter pipeline = (file, OUT) -> OUT;
+        for(final FileStreamAdapter adapter : adapters)
+            pipeline = pipeline.andThen(adapter);
+        return pipeline;
+    }
+
+}
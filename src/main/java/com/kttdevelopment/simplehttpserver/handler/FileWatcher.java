@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver.handler;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches directories for {@link ByteLoadingOption#WATCHLOAD} files in the {@link FileHandler}. Applications do not use this class. <br>
+ * The watch service and its thread are only started while a directory is being watched.
+ *
+ * @see ByteLoadingOption#WATCHLOAD
+ * @see FileHandler
+ * @see DirectoryEntry
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+final class FileWatcher {
+
+    private final Map<WatchKey,List<Registration>> registrations = new ConcurrentHashMap<>();
+
+    private WatchService service = null;
+
+    /**
+     * Receives changes in a watched directory.
+     *
+     * @since 4.5.0
+     * @version 4.5.0
+     * @author Ktt Development
+     */
+    interface Listener {
+
+        /**
+         * Called when a file in a watched directory is created, deleted, or modified. If events were lost, the kind is {@link StandardWatchEventKinds#OVERFLOW} and the path is the watched directory.
+         *
+         * @param kind event kind
+         * @param path changed file or directory
+         *
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        void onEvent(final WatchEvent.Kind<?> kind, final Path path);
+
+    }
+
+    private static final class Registration {
+
+        private final Object owner;
+        private final Listener listener;
+
+        private Registration(final Object owner, final Listener listener){
+            this.owner    = owner;
+            this.listener = listener;
+        }
+
+    }
+
+//
+
+    /**
+     * Watches a directory, starting the watch service if it is not running. An owner only has one listener per directory. <br>
+     * Listeners get absolute, normalized paths, no matter how the directory was given.
+     *
+     * @param directory directory to watch
+     * @param owner who to remove the listener for in {@link #unregister(Object)}
+     * @param listener listener
+     * @throws IOException failure to start the watch service or watch the directory
+     *
+     * @see #unregister(Object)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    synchronized final void register(final Path directory, final Object owner, final Listener listener) throws IOException{
+        if(service == null){
+            final WatchService service = FileSystems.getDefault().newWatchService();
+            final Thread thread = new Thread(() -> run(service), "FileHandler-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            this.service = service;
+        }
+        // a directory has one key, which resolves events against the path it was first registered with
+        final WatchKey key = directory.toAbsolutePath().normalize().register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        final List<Registration> listeners = registrations.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>());
+        for(final Registration registration : listeners)
+            if(registration.owner == owner) return; // already watched
+        listeners.add(new Registration(owner, listener));
+    }
+
+    /**
+     * Removes every listener of an owner, stopping the watch service if nothing is being watched.
+     *
+     * @param owner owner
+     *
+     * @see #register(Path, Object, Listener)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    synchronized final void unregister(final Object owner){
+        if(service == null) return;
+        registrations.entrySet().removeIf(e -> {
+            e.getValue().removeIf(registration -> registration.owner == owner);
+            if(!e.getValue().isEmpty()) return false;
+            e.getKey().cancel();
+            return true;
+        });
+        if(registrations.isEmpty()){
+            try{
+                service.close();
+            }catch(final IOException ignored){ }
+            service = null;
+        }
+    }
+
+    private void run(final WatchService service){
+        while(true){
+            final WatchKey key;
+            try{
+                key = service.take();
+            }catch(final ClosedWatchServiceException | InterruptedException ignored){
+                return;
+            }
+            final Path directory = (Path) key.watchable();
+            for(final WatchEvent<?> event : key.pollEvents()){
+                final WatchEvent.Kind<?> kind = event.kind();
+                final Path path = kind == OVERFLOW ? directory : directory.resolve((Path) event.context());
+                for(final Registration registration : registrations.getOrDefault(key, Collections.emptyList())){
+                    try{
+                        registration.listener.onEvent(kind, path);
+                    }catch(final RuntimeException ignored){ } // keep watching other files
+                }
+            }
+            if(!key.reset()) // directory no longer exists
+                registrations.remove(key);
+        }
+    }
+
+//
+
+    @Override
+    public String toString(){
+        return
+            "FileWatcher"   + '{' +
+            "directories"   + '=' +     registrations.size() +
+            '}';
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver.handler;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The progress of a directory being loaded in the background by {@link FileHandler#addDirectoryAsync(String, File, String, ByteLoadingOption, boolean)}.
+ *
+ * @see FileHandler#addDirectoryAsync(String, File, String, ByteLoadingOption, boolean)
+ * @see FileHandler#addDirectoryAsync(String, File, String, ByteLoadingOption, boolean, java.util.concurrent.ForkJoinPool)
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+public final class LoadProgress {
+
+    private final AtomicLong found  = new AtomicLong(0);
+    private final AtomicLong loaded = new AtomicLong(0);
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    LoadProgress(){ }
+
+    /**
+     * Counts a file that was found.
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void found(){
+        found.incrementAndGet();
+    }
+
+    /**
+     * Counts a file that was loaded.
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void loaded(){
+        loaded.incrementAndGet();
+    }
+
+    /**
+     * Marks the loading as done.
+     *
+     * @param exception why loading failed, or null if it succeeded
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void complete(final Throwable exception){
+        if(exception == null)
+            completion.complete(null);
+        else
+            completion.completeExceptionally(exception);
+    }
+
+//
+
+    /**
+     * Returns how many files were found so far.
+     *
+     * @return files found
+     *
+     * @see #getFilesLoaded()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final long getFilesFound(){
+        return found.get();
+    }
+
+    /**
+     * Returns how many files were loaded so far.
+     *
+     * @return files loaded
+     *
+     * @see #getFilesFound()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final long getFilesLoaded(){
+        return loaded.get();
+    }
+
+    /**
+     * Returns if the directory finished loading or failed to load.
+     *
+     * @return if loading is done
+     *
+     * @see #await()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final boolean isDone(){
+        return completion.isDone();
+    }
+
+    /**
+     * Waits for the directory to finish loading.
+     *
+     * @throws InterruptedException if the thread was interrupted while waiting
+     * @throws UncheckedIOException failure to walk through directory or failure to start watch service
+     *
+     * @see #isDone()
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    public final void await() throws InterruptedException{
+        try{
+            completion.get();
+        }catch(final ExecutionException e){
+            final Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+//
+
+    @Override
+    public String toString(){
+        return
+            "LoadProgress"  + '{' +
+            "found"         + '=' +     found       + ", " +
+            "loaded"        + '=' +     loaded      + ", " +
+            "done"          + '=' +     isDone()    +
+            '}';
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver.handler;
+
+import java.net.URLConnection;
+import java.util.*;
+
+/**
+ * Resolves the <code>Content-Type</code> of files in the {@link FileHandler} from their extension. Applications do not use this class. <br>
+ * Common web types are in a table; other extensions fall back to {@link URLConnection#getFileNameMap()}.
+ *
+ * @see FileEntry#getContentType()
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+final class MimeTypes {
+
+    private static final Map<String,String> types;
+
+    static{
+        final Map<String,String> map = new HashMap<>();
+        // text
+        map.put("html", "text/html");
+        map.put("htm", "text/html");
+        map.put("css", "text/css");
+        map.put("csv", "text/csv");
+        map.put("txt", "text/plain");
+        map.put("md", "text/markdown");
+        map.put("xml", "text/xml");
+        map.put("js", "text/javascript");
+        map.put("mjs", "text/javascript");
+        // application
+        map.put("json", "application/json");
+        map.put("map", "application/json");
+        map.put("webmanifest", "application/manifest+json");
+        map.put("wasm", "application/wasm");
+        map.put("pdf", "application/pdf");
+        map.put("zip", "application/zip");
+        map.put("gz", "application/gzip");
+        map.put("jar", "application/java-archive");
+        // image
+        map.put("png", "image/png");
+        map.put("jpg", "image/jpeg");
+        map.put("jpeg", "image/jpeg");
+        map.put("gif", "image/gif");
+        map.put("svg", "image/svg+xml");
+        map.put("ico", "image/x-icon");
+        map.put("webp", "image/webp");
+        map.put("avif", "image/avif");
+        map.put("bmp", "image/bmp");
+        // font
+        map.put("woff", "font/woff");
+        map.put("woff2", "font/woff2");
+        map.put("ttf", "font/ttf");
+        map.put("otf", "font/otf");
+        // audio and video
+        map.put("mp3", "audio/mpeg");
+        map.put("ogg", "audio/ogg");
+        map.put("wav", "audio/wav");
+        map.put("mp4", "video/mp4");
+        map.put("webm", "video/webm");
+        types = Collections.unmodifiableMap(map);
+    }
+
+    private MimeTypes(){ }
+
+    /**
+     * Returns the content type of a file name.
+     *
+     * @param fileName file name
+     * @return content type or null if unknown
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static String getContentType(final String fileName){
+        final int dot = fileName.lastIndexOf('.');
+        if(dot != -1){
+            final String type = types.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+            if(type != null) return type;
+        }
+        return URLConnection.getFileNameMap().getContentTypeFor(fileName);
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver.handler;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A file that records what a walked {@link DirectoryEntry} found, so the next start can trust directories and files that did not change. Applications do not use this class. <br>
+ * Each directory is recorded with its last modified time, sub-directories, and files. Each file is recorded with its adapted name, size, last modified time, and entity tag.
+ *
+ * @see DirectoryEntry
+ * @see FileHandler#setIndexDirectory(File)
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+final class StartupIndex {
+
+    private static final int MAGIC   = 0x53485349; // SHSI
+    private static final int VERSION = 2;
+
+    private final Map<String,Directory> directories = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty index.
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    StartupIndex(){ }
+
+    /**
+     * A recorded directory.
+     *
+     * @since 4.5.0
+     * @version 4.5.0
+     * @author Ktt Development
+     */
+    static final class Directory {
+
+        private final long lastModified;
+        private final List<String> directories;
+        private final List<Record> files;
+
+        Directory(final long lastModified, final List<String> directories, final List<Record> files){
+            this.lastModified = lastModified;
+            this.directories  = directories;
+            this.files        = files;
+        }
+
+        final long getLastModified(){
+            return lastModified;
+        }
+
+        final List<String> getDirectories(){
+            return directories;
+        }
+
+        final List<Record> getFiles(){
+            return files;
+        }
+
+    }
+
+    /**
+     * A recorded file.
+     *
+     * @since 4.5.0
+     * @version 4.5.0
+     * @author Ktt Development
+     */
+    static final class Record {
+
+        private final String fileName;
+        private final String name;
+        private final long size;
+        private final long lastModified;
+        private final String etag;
+
+        Record(final String fileName, final String name, final long size, final long lastModified, final String etag){
+            this.fileName     = fileName;
+            this.name         = name;
+            this.size         = size;
+            this.lastModified = lastModified;
+            this.etag         = etag;
+        }
+
+        final String getFileName(){
+            return fileName;
+        }
+
+        final String getName(){
+            return name;
+        }
+
+        final long getLastModified(){
+            return lastModified;
+        }
+
+        final String getETag(){
+            return etag;
+        }
+
+        /**
+         * Returns if the file has the recorded size and last modified time.
+         *
+         * @param file file
+         * @return if the file is unchanged
+         *
+         * @since 4.5.0
+         * @author Ktt Development
+         */
+        final boolean matches(final File file){
+            return file.lastModified() == lastModified && file.length() == size;
+        }
+
+    }
+
+//
+
+    /**
+     * Returns a recorded directory.
+     *
+     * @param relative path relative to the walked directory
+     * @return recorded directory or null
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final Directory get(final String relative){
+        return directories.get(relative);
+    }
+
+    /**
+     * Records a directory.
+     *
+     * @param relative path relative to the walked directory
+     * @param directory recorded directory
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void put(final String relative, final Directory directory){
+        directories.put(relative, directory);
+    }
+
+//
+
+    /**
+     * Returns what an index is for. Handlers that add the same directory with a different handler or adapter class, loading option, or context have different keys, since they may name and load files differently.
+     *
+     * @param directory walked directory
+     * @param handler file handler
+     * @param adapter file handler adapter
+     * @param loadingOption loading option
+     * @param context context the directory is added at
+     * @return index key
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static String getKey(final File directory, final FileHandler handler, final FileHandlerAdapter adapter, final ByteLoadingOption loadingOption, final String context){
+        return String.join("\n", directory.getAbsolutePath(), handler.getClass().getName(), adapter.getClass().getName(), loadingOption.name(), context);
+    }
+
+    /**
+     * Reads an index file.
+     *
+     * @param file index file
+     * @param key what the index must be for
+     * @return index, or null if there is no readable index for the key
+     *
+     * @see #getKey(File, FileHandler, FileHandlerAdapter, ByteLoadingOption, String)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static StartupIndex read(final File file, final String key){
+        if(!file.isFile()) return null;
+        try(final DataInputStream IN = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))){
+            if(IN.readInt() != MAGIC || IN.readInt() != VERSION || !IN.readUTF().equals(key))
+                return null;
+            final StartupIndex index = new StartupIndex();
+            final int directories = IN.readInt();
+            for(int i = 0; i < directories; i++){
+                final String relative   = IN.readUTF();
+                final long lastModified = IN.readLong();
+                final List<String> subdirectories = new ArrayList<>();
+                for(int j = IN.readInt(); j > 0; j--)
+                    subdirectories.add(IN.readUTF());
+                final List<Record> files = new ArrayList<>();
+                for(int j = IN.readInt(); j > 0; j--)
+                    files.add(new Record(IN.readUTF(), IN.readUTF(), IN.readLong(), IN.readLong(), IN.readUTF()));
+                index.put(relative, new Directory(lastModified, subdirectories, files));
+            }
+            return index;
+        }catch(final IOException ignored){ // unreadable index is the same as no index
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index to a file, replacing the file once it is fully written.
+     *
+     * @param file index file
+     * @param key what the index is for
+     * @throws IOException failure to write the index
+     *
+     * @see #getKey(File, FileHandler, FileHandlerAdapter, ByteLoadingOption, String)
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    final void write(final File file, final String key) throws IOException{
+        final Path target = file.toPath();
+        final Path temp   = target.resolveSibling(file.getName() + ".tmp");
+        try(final DataOutputStream OUT = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))){
+            OUT.writeInt(MAGIC);
+            OUT.writeInt(VERSION);
+            OUT.writeUTF(key);
+            OUT.writeInt(directories.size());
+            for(final Map.Entry<String,Directory> entry : directories.entrySet()){
+                final Directory dir = entry.getValue();
+                OUT.writeUTF(entry.getKey());
+                OUT.writeLong(dir.lastModified);
+                OUT.writeInt(dir.directories.size());
+                for(final String subdirectory : dir.directories)
+                    OUT.writeUTF(subdirectory);
+                OUT.writeInt(dir.files.size());
+                for(final Record record : dir.files){
+                    OUT.writeUTF(record.fileName);
+                    OUT.writeUTF(record.name);
+                    OUT.writeLong(record.size);
+                    OUT.writeLong(record.lastModified);
+                    OUT.writeUTF(record.etag);
+                }
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+//
+
+    @Override
+    public String toString(){
+        return
+            "StartupIndex"  + '{' +
+            "directories"   + '=' +     directories.size() +
+            '}';
+    }
+
+}
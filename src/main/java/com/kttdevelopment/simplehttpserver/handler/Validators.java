@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2021 Ktt Development
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.kttdevelopment.simplehttpserver.handler;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpExchange;
+import com.sun.net.httpserver.Headers;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Creates <code>ETag</code> and <code>Last-Modified</code> validators and evaluates conditional requests for the {@link FileHandler}. Applications do not use this class.
+ *
+ * @see FileHandler
+ * @see ByteRanges
+ * @since 4.5.0
+ * @version 4.5.0
+ * @author Ktt Development
+ */
+final class Validators {
+
+    // RFC 1123 with a two digit day, which is the only format sent in HTTP
+    private static final DateTimeFormatter IMF_FIXDATE = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private Validators(){ }
+
+    /**
+     * Returns a strong entity tag for the bytes.
+     *
+     * @param bytes bytes
+     * @return strong entity tag
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static String strongETag(final byte[] bytes){
+        try{
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, 22) + '"';
+        }catch(final NoSuchAlgorithmException e){ // required by every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns a weak entity tag from the file's last modified time and size.
+     *
+     * @param lastModified last modified time, in milliseconds
+     * @param length file size
+     * @return weak entity tag
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static String weakETag(final long lastModified, final long length){
+        return "W/\"" + Long.toHexString(lastModified) + '-' + Long.toHexString(length) + '"';
+    }
+
+    /**
+     * Returns the entity tag of a content coding of a representation.
+     *
+     * @param etag entity tag
+     * @param encoding content coding
+     * @return entity tag for the coding
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static String encodedETag(final String etag, final String encoding){
+        return etag.substring(0, etag.length() - 1) + '-' + encoding + '"';
+    }
+
+//
+
+    /**
+     * Sets the <code>ETag</code> and <code>Last-Modified</code> response headers, then sends a <code>304</code> response if the request's validators match.
+     *
+     * @param exchange http exchange
+     * @param etag entity tag, or null if there is none
+     * @param lastModified last modified time, in milliseconds, or 0 if unknown
+     * @return if a <code>304</code> response was sent
+     * @throws IOException internal failure
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static boolean handle(final SimpleHttpExchange exchange, final String etag, final long lastModified) throws IOException{
+        final Headers headers = exchange.getResponseHeaders();
+        if(etag != null)
+            headers.set("ETag", etag);
+        if(lastModified > 0)
+            headers.set("Last-Modified", formatDate(lastModified));
+
+        final String method = exchange.getRequestMethod();
+        if(!method.equals("GET") && !method.equals("HEAD")) return false;
+
+        final Headers request = exchange.getRequestHeaders();
+        final boolean notModified;
+        if(request.containsKey("If-None-Match")){ // takes precedence over if-modified-since
+            notModified = etag != null && matchesAny(request.get("If-None-Match"), etag);
+        }else{
+            final long since = parseDate(request.getFirst("If-Modified-Since"));
+            notModified = since != -1 && lastModified > 0 && lastModified / 1000 <= since;
+        }
+        if(notModified)
+            exchange.sendResponseHeaders(304, -1);
+        return notModified;
+    }
+
+    // weak comparison against a list of entity tags
+    private static boolean matchesAny(final Iterable<String> headers, final String etag){
+        final String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for(final String header : headers){
+            for(final String tag : header.split(",")){
+                final String t = tag.trim();
+                if(t.equals("*") || (t.startsWith("W/") ? t.substring(2) : t).equals(opaque))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns if an <code>If-Range</code> validator matches the response validators. Entity tags must be strong and equal; dates must equal the last modified date.
+     *
+     * @param ifRange if range header
+     * @param responseHeaders response headers with the response validators
+     * @return if the range request applies
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static boolean matchesIfRange(final String ifRange, final Headers responseHeaders){
+        final String value = ifRange.trim();
+        if(value.startsWith("W/")) return false;
+        if(value.startsWith("\"")){
+            final String etag = responseHeaders.getFirst("ETag");
+            return etag != null && !etag.startsWith("W/") && etag.equals(value);
+        }
+        final long date = parseDate(value);
+        return date != -1 && date == parseDate(responseHeaders.getFirst("Last-Modified"));
+    }
+
+//
+
+    /**
+     * Formats a time as an HTTP date, ex: <code>Sun, 06 Nov 1994 08:49:37 GMT</code>.
+     *
+     * @param millis time, in milliseconds
+     * @return HTTP date
+     *
+     * @since 4.5.0
+     * @author Ktt Development
+     */
+    static String formatDate(final long millis){
+        return IMF_FIXDATE.format(Instant.ofEpochMilli(millis));
+    }
+
+    // http date in epoch seconds or -1
+    private static long parseDate(final String date){
+        if(date == null) return -1;
+        try{
+            return ZonedDateTime.parse(date.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+        }catch(final DateTimeParseException ignored){
+            return -1;
+        }
+    }
+
+}
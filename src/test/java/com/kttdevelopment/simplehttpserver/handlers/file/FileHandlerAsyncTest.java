@@ -0,0 +1,71 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+public final class FileHandlerAsyncTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    @Test
+    public final void asyncTest() throws IOException, InterruptedException, ExecutionException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler();
+
+        // 4 directories of 25 files, each with 2 sub-directories of 25 files
+        int count = 0;
+        for(int d = 0; d < 4; d++){
+            final File top = new File(dir, "d" + d);
+            for(int s = 0; s < 3; s++){
+                final File sub = s == 0 ? top : new File(top, "s" + s);
+                Assertions.assertTrue(sub.isDirectory() || sub.mkdirs());
+                for(int f = 0; f < 25; f++, count++)
+                    Files.write(new File(sub, "f" + f).toPath(), sub.getPath().concat(String.valueOf(f)).getBytes());
+            }
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final LoadProgress walked = handler.addDirectoryAsync("", dir, "walk", ByteLoadingOption.PRELOAD, true, pool);
+        final LoadProgress top    = handler.addDirectoryAsync("", new File(dir, "d0"), "top", ByteLoadingOption.PRELOAD, false, pool);
+
+        walked.await();
+        top.await();
+        Assertions.assertTrue(walked.isDone());
+        Assertions.assertEquals(count, walked.getFilesFound(), "Walk did not find every file");
+        Assertions.assertEquals(count, walked.getFilesLoaded(), "Walk did not load every file");
+        Assertions.assertEquals(25, top.getFilesLoaded(), "Directory without walk should only load top level files");
+
+        server.createContext("", handler);
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+        for(final String path : new String[]{"d0/f0", "d1/s1/f24", "d3/s2/f12"}){
+            final String expected = new File(dir, path).getParentFile().getPath() + path.substring(path.lastIndexOf('f') + 1);
+            Assertions.assertEquals(expected, client.sendAsync(HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + "/walk/" + path)).build(), HttpResponse.BodyHandlers.ofString()).get().body(), "Client data did not match server data for " + path);
+        }
+
+        // failure
+        final LoadProgress missing = handler.addDirectoryAsync("", new File(dir, "missing"), "missing", ByteLoadingOption.PRELOAD, true, pool);
+        Assertions.assertThrows(UncheckedIOException.class, missing::await);
+        Assertions.assertTrue(missing.isDone());
+
+        server.stop();
+        pool.shutdown();
+    }
+
+}
@@ -13,6 +13,7 @@ import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FileHandlerCacheTest {
 
@@ -110,6 +111,146 @@ public class FileHandlerCacheTest {
         }
         Assertions.assertTrue(handler.toString().contains(cacheContent));
         Assertions.assertFalse(handler.toString().contains(unexpected));
+
+        server.stop();
+    }
+
+    @Test
+    public final void testCacheSweep() throws IOException, InterruptedException, ExecutionException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final long cacheTime = 500;
+        final String content = UUID.randomUUID().toString();
+
+        final FileHandler handler = new FileHandler(new CacheFileAdapter(cacheTime));
+        final File cache = new File(dir, UUID.randomUUID().toString());
+        Files.write(cache.toPath(), content.getBytes());
+        handler.addFile(cache, ByteLoadingOption.CACHELOAD);
+
+        server.createContext("", handler);
+        server.start();
+
+        final String cacheContent = "bytes=" + Arrays.toString(content.getBytes());
+        final HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create("http://localhost:" + port + '/' + cache.getName()))
+            .build();
+
+        Assertions.assertEquals(content, HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofString()).get().body());
+        Assertions.assertTrue(handler.toString().contains(cacheContent));
+
+        // expired bytes are cleared without another request
+        Thread.sleep(cacheTime * 3);
+        Assertions.assertFalse(handler.toString().contains(cacheContent), "Expired file was not cleared");
+
+        Assertions.assertEquals(content, HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofString()).get().body());
+        Assertions.assertTrue(handler.toString().contains(cacheContent), "Expired file was not loaded again");
+
+        server.stop();
+    }
+
+    @Test
+    public final void testStaleWhileRevalidate() throws IOException, InterruptedException, ExecutionException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final long cacheTime = 250;
+        final AtomicInteger read  = new AtomicInteger();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CacheFileAdapter(cacheTime, -1));
+        final FileHandler handler = new FileHandler(new CacheFileAdapter(cacheTime, 10_000){
+            @Override
+            public final byte[] getBytes(final File file, final byte[] bytes){
+                read.incrementAndGet();
+                try{
+                    Thread.sleep(500); // slow adapter, so a blocked request would be noticed
+                }catch(final InterruptedException ignored){ }
+                return bytes;
+            }
+        });
+        final File cache = new File(dir, UUID.randomUUID().toString());
+        Files.write(cache.toPath(), "before".getBytes());
+        final long lastModified = cache.lastModified();
+        handler.addFile(cache, ByteLoadingOption.CACHELOAD);
+
+        server.createContext("", handler);
+        server.start();
+
+        final HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create("http://localhost:" + port + '/' + cache.getName()))
+            .build();
+
+        Assertions.assertEquals("before", HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofString()).get().body());
+        Assertions.assertEquals(1, read.get());
+
+        // expired file is served while it is loaded in the background
+        Files.write(cache.toPath(), "after".getBytes());
+        Assertions.assertTrue(cache.setLastModified(lastModified));
+        Thread.sleep(cacheTime * 2);
+
+        final long start = System.currentTimeMillis();
+        Assertions.assertEquals("before", HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofString()).get().body(), "Expired file was not served while it was loaded again");
+        Assertions.assertTrue(System.currentTimeMillis() - start < 500, "Request waited for the expired file to load");
+
+        Thread.sleep(1000);
+        Assertions.assertEquals(2, read.get(), "Expired file was not loaded in the background");
+        Assertions.assertEquals("after", HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofString()).get().body(), "Client data did not match revalidated server data");
+
+        server.stop();
+    }
+
+    @Test
+    public final void testCacheSize() throws IOException, InterruptedException, ExecutionException{
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FileHandler(-1));
+
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler(1000);
+
+        final String hotContent   = "h".repeat(300);
+        final String largeContent = "l".repeat(900);
+        final String hugeContent  = "x".repeat(1001);
+
+        final File hot   = new File(dir, "hot");
+        final File large = new File(dir, "large");
+        final File huge  = new File(dir, "huge");
+        Files.write(hot.toPath(), hotContent.getBytes());
+        Files.write(large.toPath(), largeContent.getBytes());
+        Files.write(huge.toPath(), hugeContent.getBytes());
+
+        handler.addFile(hot, ByteLoadingOption.MODLOAD);
+        handler.addFile(large, ByteLoadingOption.MODLOAD);
+        handler.addFile(huge, ByteLoadingOption.PRELOAD);
+
+        server.createContext("", handler);
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+        final String hotBytes   = "bytes=" + Arrays.toString(hotContent.getBytes());
+        final String largeBytes = "bytes=" + Arrays.toString(largeContent.getBytes());
+        final String hugeBytes  = "bytes=" + Arrays.toString(hugeContent.getBytes());
+
+        Assertions.assertTrue(handler.toString().contains(hotBytes), "First file should be kept while there is room");
+        Assertions.assertFalse(handler.toString().contains(largeBytes), "File that does not fit should not evict an equally used file");
+
+        for(int i = 0; i < 3; i++)
+            Assertions.assertEquals(hotContent, client.sendAsync(HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + "/hot")).build(), HttpResponse.BodyHandlers.ofString()).get().body());
+
+        // large file is served but not kept, since the hot file was requested more often
+        Assertions.assertEquals(largeContent, client.sendAsync(HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + "/large")).build(), HttpResponse.BodyHandlers.ofString()).get().body());
+        Assertions.assertTrue(handler.toString().contains(hotBytes), "Frequently used file should not be evicted by a rarely used file");
+        Assertions.assertFalse(handler.toString().contains(largeBytes), "Rarely used file should not be kept");
+
+        // large file is kept once it is requested more often than the file it evicts
+        for(int i = 0; i < 5; i++)
+            Assertions.assertEquals(largeContent, client.sendAsync(HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + "/large")).build(), HttpResponse.BodyHandlers.ofString()).get().body());
+        Assertions.assertTrue(handler.toString().contains(largeBytes), "Frequently used file should be kept");
+        Assertions.assertFalse(handler.toString().contains(hotBytes), "Less used file should be evicted");
+
+        // file larger than the cache is always read again
+        Assertions.assertEquals(hugeContent, client.sendAsync(HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + "/huge")).build(), HttpResponse.BodyHandlers.ofString()).get().body());
+        Assertions.assertFalse(handler.toString().contains(hugeBytes), "File larger than the cache should not be kept");
+        Assertions.assertTrue(handler.toString().contains(largeBytes), "File larger than the cache should not evict other files");
+
+        server.stop();
     }
 
 }
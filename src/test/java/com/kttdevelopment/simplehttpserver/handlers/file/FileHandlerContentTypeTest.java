@@ -0,0 +1,61 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.ByteLoadingOption;
+import com.kttdevelopment.simplehttpserver.handler.FileHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+public final class FileHandlerContentTypeTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    @Test
+    public final void contentTypeTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler();
+
+        final Map<String,String> expected = Map.of(
+            "index.html", "text/html",
+            "style.CSS", "text/css",
+            "app.js", "text/javascript",
+            "font.woff2", "font/woff2",
+            "image.png", "image/png"
+        );
+        for(final String name : expected.keySet())
+            Files.write(new File(dir, name).toPath(), name.getBytes());
+        Files.write(new File(dir, "unknown.zzz").toPath(), "unknown".getBytes());
+
+        handler.addDirectory("", dir, "preload", ByteLoadingOption.PRELOAD, false);
+        handler.addDirectory("", dir, "live", ByteLoadingOption.LIVELOAD, false);
+        handler.addFile(new File(dir, "index.html"), "renamed", ByteLoadingOption.MODLOAD);
+
+        server.createContext("", handler);
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+        final String url = "http://localhost:" + port + '/';
+
+        for(final String context : new String[]{"preload/", "live/"})
+            for(final Map.Entry<String,String> entry : expected.entrySet())
+                Assertions.assertEquals(entry.getValue(), client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + context + entry.getKey())).build(), HttpResponse.BodyHandlers.ofString()).get().headers().firstValue("Content-Type").orElse(null), "Wrong content type for " + context + entry.getKey());
+
+        Assertions.assertEquals("text/html", client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "renamed")).build(), HttpResponse.BodyHandlers.ofString()).get().headers().firstValue("Content-Type").orElse(null), "Content type should come from the file, not its name in the handler");
+        Assertions.assertTrue(client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "preload/unknown.zzz")).build(), HttpResponse.BodyHandlers.ofString()).get().headers().firstValue("Content-Type").isEmpty(), "Unknown extension should not have a content type");
+
+        server.stop();
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpExchange;
+import com.kttdevelopment.simplehttpserver.SimpleHttpHandler;
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.ByteLoadingOption;
+import com.kttdevelopment.simplehttpserver.handler.FileHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public final class FileHandlerEncodingTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    @Test
+    public final void encodingTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler();
+        final String context          = "";
+
+        final String testContent = String.valueOf(System.currentTimeMillis()).repeat(1024);
+
+        // compressed by the handler
+        final File generated = new File(dir, "generated.txt");
+        Files.write(generated.toPath(), testContent.getBytes());
+        handler.addFile(generated, ByteLoadingOption.PRELOAD);
+
+        // precompressed sibling files
+        final File sibling = new File(dir, "sibling.txt");
+        Files.write(sibling.toPath(), testContent.getBytes());
+        final byte[] br = "brotli".getBytes();
+        Files.write(new File(dir, "sibling.txt.br").toPath(), br);
+        final ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        try(final GZIPOutputStream OUT = new GZIPOutputStream(gz)){
+            OUT.write(testContent.getBytes());
+        }
+        Files.write(new File(dir, "sibling.txt.gz").toPath(), gz.toByteArray());
+        handler.addFile(sibling, ByteLoadingOption.MODLOAD);
+
+        server.createContext(context, handler);
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+        final String url = "http://localhost:" + port + context + '/';
+
+        // generated gzip
+        {
+            final HttpResponse<byte[]> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + generated.getName())).header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray()).get();
+            Assertions.assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null), "Client did not receive gzip variant for " + generated.getName());
+            Assertions.assertEquals("Accept-Encoding", response.headers().firstValue("Vary").orElse(null), "Variant response is missing Vary header for " + generated.getName());
+            Assertions.assertEquals(testContent, new String(new GZIPInputStream(new ByteArrayInputStream(response.body())).readAllBytes()), "Client data did not match server data for " + generated.getName());
+        }
+
+        // no accept encoding
+        {
+            final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + generated.getName())).build(), HttpResponse.BodyHandlers.ofString()).get();
+            Assertions.assertTrue(response.headers().firstValue("Content-Encoding").isEmpty(), "Client received a variant it did not accept for " + generated.getName());
+            Assertions.assertEquals(testContent, response.body(), "Client data did not match server data for " + generated.getName());
+        }
+
+        // sibling br
+        {
+            final HttpResponse<byte[]> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + sibling.getName())).header("Accept-Encoding", "gzip, br").build(), HttpResponse.BodyHandlers.ofByteArray()).get();
+            Assertions.assertEquals("br", response.headers().firstValue("Content-Encoding").orElse(null), "Client did not receive br variant for " + sibling.getName());
+            Assertions.assertArrayEquals(br, response.body(), "Client data did not match sibling file for " + sibling.getName());
+        }
+
+        // sibling gz
+        {
+            final HttpResponse<byte[]> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + sibling.getName())).header("Accept-Encoding", "gzip, br;q=0").build(), HttpResponse.BodyHandlers.ofByteArray()).get();
+            Assertions.assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null), "Client did not receive gzip variant for " + sibling.getName());
+            Assertions.assertArrayEquals(gz.toByteArray(), response.body(), "Client data did not match sibling file for " + sibling.getName());
+        }
+
+        server.stop();
+    }
+
+    @Test
+    public final void varyTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler();
+
+        final File file = new File(dir, "file.txt");
+        Files.write(file.toPath(), "text".repeat(1024).getBytes());
+        handler.addFile(file, ByteLoadingOption.PRELOAD);
+
+        // response already varies by encoding
+        server.createContext("", (SimpleHttpHandler) exchange -> {
+            exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+            handler.handle(exchange);
+        });
+        server.start();
+
+        final HttpResponse<byte[]> response = HttpClient.newHttpClient().sendAsync(HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + '/' + file.getName())).header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray()).get();
+        Assertions.assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        Assertions.assertEquals(List.of("Accept-Encoding"), response.headers().allValues("Vary"), "Vary header should only list Accept-Encoding once");
+
+        server.stop();
+    }
+
+    @Test
+    public final void overriddenHandleTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final AtomicReference<byte[]> received = new AtomicReference<>();
+        final AtomicReference<String> encoding = new AtomicReference<>();
+        final FileHandler handler     = new FileHandler(){
+            @Override
+            public final void handle(final SimpleHttpExchange exchange, final File source, final byte[] bytes) throws IOException{
+                received.set(bytes);
+                encoding.set(exchange.getResponseHeaders().getFirst("Content-Encoding"));
+                exchange.send(HttpURLConnection.HTTP_OK);
+            }
+        };
+
+        final String testContent = "text".repeat(1024);
+        final File file = new File(dir, "file.txt");
+        Files.write(file.toPath(), testContent.getBytes());
+        handler.addFile(file, ByteLoadingOption.PRELOAD);
+
+        server.createContext("", handler);
+        server.start();
+
+        HttpClient.newHttpClient().sendAsync(HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + '/' + file.getName())).header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.discarding()).get();
+        Assertions.assertNull(encoding.get(), "Overridden handle should not have a Content-Encoding set");
+        Assertions.assertEquals(testContent, new String(received.get()), "Overridden handle should get the unencoded bytes");
+
+        server.stop();
+    }
+
+}
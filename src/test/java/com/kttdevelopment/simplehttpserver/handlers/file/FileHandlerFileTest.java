@@ -29,8 +29,8 @@ public final class FileHandlerFileTest {
         final String context          = "";
 
         final Map<File,ByteLoadingOption> files = new HashMap<>();
-        Arrays.stream(ByteLoadingOption.values())
-            .filter(o -> o != ByteLoadingOption.CACHELOAD)
+        // watchload and mmap are tested separately, since they depend on file system events and mapping
+        Arrays.stream(new ByteLoadingOption[]{ByteLoadingOption.PRELOAD, ByteLoadingOption.MODLOAD, ByteLoadingOption.LIVELOAD})
             .forEach(blop -> files.put(new File(dir, blop.name()), blop));
         final String empty = handler.toString();
         // initial write
@@ -0,0 +1,73 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class FileHandlerIndexTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    @Test
+    public final void indexTest() throws IOException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final AtomicInteger named     = new AtomicInteger();
+        final FileHandler handler     = new FileHandler(new FileHandlerAdapter() {
+            @Override
+            public final String getName(final File file){
+                named.incrementAndGet();
+                return file.getName();
+            }
+        });
+
+        for(int i = 0; i < 10; i++)
+            Files.write(new File(dir, String.valueOf(i)).toPath(), String.valueOf(i).getBytes());
+
+        handler.addDirectory("", dir, "", ByteLoadingOption.LIVELOAD, false);
+        server.createContext("", handler);
+        server.start();
+
+        // directory is only listed once for hits and misses
+        for(int i = 0; i < 10; i++){
+            Assertions.assertEquals(String.valueOf(i), get(port, String.valueOf(i)));
+            Assertions.assertNull(get(port, "missing"));
+        }
+        Assertions.assertEquals(10, named.get(), "Directory should only be listed once while it is unchanged");
+
+        // new file is found as soon as the directory changes, even if the miss has not expired
+        Files.write(new File(dir, "missing").toPath(), "found".getBytes());
+        Assertions.assertTrue(dir.setLastModified(dir.lastModified() + 2000));
+        Assertions.assertEquals("found", get(port, "missing"), "Created file was not found after directory changed");
+        Assertions.assertEquals(21, named.get(), "Changed directory should be listed again");
+
+        server.stop();
+    }
+
+    private static String get(final int port, final String path) throws InterruptedException{
+        final HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create("http://localhost:" + port + '/' + path))
+            .build();
+        try{
+            return HttpClient.newHttpClient()
+                .sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(HttpResponse::body)
+                .get();
+        }catch(final ExecutionException ignored){
+            return null;
+        }
+    }
+
+}
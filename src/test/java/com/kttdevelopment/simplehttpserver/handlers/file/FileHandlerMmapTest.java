@@ -0,0 +1,73 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.ByteLoadingOption;
+import com.kttdevelopment.simplehttpserver.handler.FileHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+public final class FileHandlerMmapTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    @Test
+    public final void mmapTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler();
+
+        final File file = new File(dir, "file.bin");
+        Files.write(file.toPath(), "mapped".getBytes());
+        handler.addFile(file, ByteLoadingOption.MMAP);
+
+        server.createContext("", handler);
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+        final URI uri = URI.create("http://localhost:" + port + '/' + file.getName());
+
+        {
+            final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(uri).build(), HttpResponse.BodyHandlers.ofString()).get();
+            Assertions.assertEquals("mapped", response.body(), "Client data did not match server data");
+            Assertions.assertTrue(response.headers().firstValue("ETag").orElse("").startsWith("W/"), "Mapped file should have a weak entity tag");
+        }
+        {
+            final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(uri).header("Range", "bytes=-3").build(), HttpResponse.BodyHandlers.ofString()).get();
+            Assertions.assertEquals(206, response.statusCode());
+            Assertions.assertEquals("ped", response.body(), "Client range did not match server data");
+        }
+
+        // remapped after the file is replaced, a mapped file is not truncated in place
+        final File replacement = new File(dir, "replacement.bin");
+        Files.write(replacement.toPath(), "remapped file".getBytes());
+        Assertions.assertTrue(replacement.setLastModified(file.lastModified() + 2000));
+        Files.move(replacement.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Assertions.assertEquals("remapped file", await(client, uri, "remapped file"), "Client data did not match modified server data");
+
+        server.stop();
+    }
+
+    // waits for the server to see a change
+    private static String await(final HttpClient client, final URI uri, final String expected) throws ExecutionException, InterruptedException{
+        String response = null;
+        for(int i = 0; i < 50; i++){
+            response = client.sendAsync(HttpRequest.newBuilder().uri(uri).build(), HttpResponse.BodyHandlers.ofString()).get().body();
+            if(expected.equals(response))
+                break;
+            Thread.sleep(100);
+        }
+        return response;
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.ByteLoadingOption;
+import com.kttdevelopment.simplehttpserver.handler.FileHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+public final class FileHandlerMountTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    @Test
+    public final void mountTest() throws IOException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler();
+        final String context          = "";
+
+        final File outer = new File(dir, "outer");
+        final File inner = new File(dir, "inner");
+        Assertions.assertTrue(new File(outer, "foo").mkdirs());
+        Assertions.assertTrue(new File(outer, "nested").mkdirs());
+        Assertions.assertTrue(inner.mkdirs());
+
+        Files.write(new File(outer, "file").toPath(), "outer".getBytes());
+        Files.write(new File(outer, "foo/file").toPath(), "outer/foo".getBytes());
+        Files.write(new File(outer, "nested/file").toPath(), "outer/nested".getBytes());
+        Files.write(new File(inner, "file").toPath(), "inner".getBytes());
+
+        handler.addDirectory(outer, "static", ByteLoadingOption.LIVELOAD, true);
+        handler.addDirectory("static", inner, "nested", ByteLoadingOption.LIVELOAD, true);
+
+        server.createContext(context, handler);
+        server.start();
+
+        Assertions.assertEquals("outer", get(port, "static/file"), "Client data did not match outer directory");
+        Assertions.assertEquals("outer/foo", get(port, "static/foo/file"), "Client data did not match outer directory");
+        Assertions.assertEquals("inner", get(port, "static/nested/file"), "Nested directory should take precedence over outer directory");
+        Assertions.assertNull(get(port, "staticfoo/file"), "Directory should not match a sibling prefix");
+
+        handler.removeDirectory("static/nested");
+        Assertions.assertEquals("outer/nested", get(port, "static/nested/file"), "Removed nested directory should fall back to outer directory");
+
+        handler.removeDirectory("static");
+        Assertions.assertNull(get(port, "static/file"), "Client found data for removed directory");
+
+        server.stop();
+    }
+
+    private static String get(final int port, final String path) throws InterruptedException{
+        final HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create("http://localhost:" + port + '/' + path))
+            .build();
+        try{
+            return HttpClient.newHttpClient()
+                .sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(HttpResponse::body)
+                .get();
+        }catch(final ExecutionException ignored){
+            return null;
+        }
+    }
+
+}
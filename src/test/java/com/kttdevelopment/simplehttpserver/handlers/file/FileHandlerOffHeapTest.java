@@ -0,0 +1,67 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.ByteLoadingOption;
+import com.kttdevelopment.simplehttpserver.handler.FileHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
+
+public final class FileHandlerOffHeapTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    @Test
+    public final void offHeapTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler();
+        handler.setOffHeapStorage(true);
+        Assertions.assertTrue(handler.isOffHeapStorage());
+
+        final String testContent = String.valueOf(System.currentTimeMillis()).repeat(1024);
+
+        final File file = new File(dir, "file.txt");
+        Files.write(file.toPath(), testContent.getBytes());
+        handler.addFile(file, ByteLoadingOption.PRELOAD);
+        final File empty = new File(dir, "empty.txt");
+        Files.write(empty.toPath(), new byte[0]);
+        handler.addFile(empty, ByteLoadingOption.MODLOAD);
+
+        server.createContext("", handler);
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+        final String url = "http://localhost:" + port + '/';
+
+        // full
+        Assertions.assertEquals(testContent, client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + file.getName())).build(), HttpResponse.BodyHandlers.ofString()).get().body(), "Client data did not match server data");
+        Assertions.assertEquals("", client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + empty.getName())).build(), HttpResponse.BodyHandlers.ofString()).get().body(), "Client data did not match server data for empty file");
+
+        // range
+        {
+            final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + file.getName())).header("Range", "bytes=5-14").build(), HttpResponse.BodyHandlers.ofString()).get();
+            Assertions.assertEquals(206, response.statusCode());
+            Assertions.assertEquals(testContent.substring(5, 15), response.body(), "Client range did not match server data");
+        }
+
+        // gzip
+        {
+            final HttpResponse<byte[]> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + file.getName())).header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray()).get();
+            Assertions.assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+            Assertions.assertEquals(testContent, new String(new GZIPInputStream(new ByteArrayInputStream(response.body())).readAllBytes()), "Client gzip data did not match server data");
+        }
+
+        server.stop();
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.ByteLoadingOption;
+import com.kttdevelopment.simplehttpserver.handler.FileHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+public final class FileHandlerRangeTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    @Test
+    public final void rangeTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler();
+        final String context          = "";
+
+        final String testContent = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+        for(final ByteLoadingOption option : new ByteLoadingOption[]{ByteLoadingOption.PRELOAD, ByteLoadingOption.LIVELOAD}){
+            final File file = new File(dir, option.name());
+            Files.write(file.toPath(), testContent.getBytes());
+            handler.addFile(file, option);
+        }
+
+        server.createContext(context, handler);
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+
+        for(final ByteLoadingOption option : new ByteLoadingOption[]{ByteLoadingOption.PRELOAD, ByteLoadingOption.LIVELOAD}){
+            final String url = "http://localhost:" + port + context + '/' + option.name();
+            final String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(new File(dir, option.name()).lastModified()).atZone(ZoneOffset.UTC));
+
+            // full
+            {
+                final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString()).get();
+                Assertions.assertEquals(200, response.statusCode(), "Client did not receive full response for " + option);
+                Assertions.assertEquals("bytes", response.headers().firstValue("Accept-Ranges").orElse(null), "Response is missing Accept-Ranges for " + option);
+                Assertions.assertEquals(testContent, response.body(), "Client data did not match server data for " + option);
+            }
+
+            // single range
+            {
+                final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).header("Range", "bytes=2-5").build(), HttpResponse.BodyHandlers.ofString()).get();
+                Assertions.assertEquals(206, response.statusCode(), "Client did not receive partial response for " + option);
+                Assertions.assertEquals("bytes 2-5/36", response.headers().firstValue("Content-Range").orElse(null), "Content-Range did not match requested range for " + option);
+                Assertions.assertEquals("2345", response.body(), "Client data did not match requested range for " + option);
+            }
+
+            // suffix range
+            {
+                final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).header("Range", "bytes=-4").build(), HttpResponse.BodyHandlers.ofString()).get();
+                Assertions.assertEquals(206, response.statusCode(), "Client did not receive partial response for " + option);
+                Assertions.assertEquals("bytes 32-35/36", response.headers().firstValue("Content-Range").orElse(null), "Content-Range did not match requested range for " + option);
+                Assertions.assertEquals("wxyz", response.body(), "Client data did not match requested range for " + option);
+            }
+
+            // multiple ranges
+            {
+                final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).header("Range", "bytes=0-1, 10-").build(), HttpResponse.BodyHandlers.ofString()).get();
+                Assertions.assertEquals(206, response.statusCode(), "Client did not receive partial response for " + option);
+                final String contentType = response.headers().firstValue("Content-Type").orElse("");
+                Assertions.assertTrue(contentType.startsWith("multipart/byteranges; boundary="), "Multiple ranges were not sent as multipart/byteranges for " + option);
+                final String boundary = contentType.substring(contentType.indexOf('=') + 1);
+                Assertions.assertEquals(
+                    "\r\n--" + boundary + "\r\n" +
+                    "Content-Type: application/octet-stream\r\n" +
+                    "Content-Range: bytes 0-1/36\r\n\r\n" +
+                    "01" +
+                    "\r\n--" + boundary + "\r\n" +
+                    "Content-Type: application/octet-stream\r\n" +
+                    "Content-Range: bytes 10-35/36\r\n\r\n" +
+                    "abcdefghijklmnopqrstuvwxyz" +
+                    "\r\n--" + boundary + "--\r\n",
+                    response.body(),
+                    "Client data did not match requested ranges for " + option
+                );
+            }
+
+            // unsatisfiable
+            {
+                final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).header("Range", "bytes=100-").build(), HttpResponse.BodyHandlers.ofString()).get();
+                Assertions.assertEquals(416, response.statusCode(), "Client did not receive range not satisfiable for " + option);
+                Assertions.assertEquals("bytes */36", response.headers().firstValue("Content-Range").orElse(null), "Content-Range did not have the full length for " + option);
+            }
+
+            // if-range
+            {
+                final HttpResponse<String> matches = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).header("Range", "bytes=0-0").header("If-Range", lastModified).build(), HttpResponse.BodyHandlers.ofString()).get();
+                Assertions.assertEquals(206, matches.statusCode(), "Client did not receive partial response for matching If-Range for " + option);
+                Assertions.assertEquals("0", matches.body(), "Client data did not match requested range for " + option);
+
+                final HttpResponse<String> changed = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).header("Range", "bytes=0-0").header("If-Range", "Thu, 01 Jan 1970 00:00:00 GMT").build(), HttpResponse.BodyHandlers.ofString()).get();
+                Assertions.assertEquals(200, changed.statusCode(), "Client did not receive full response for outdated If-Range for " + option);
+                Assertions.assertEquals(testContent, changed.body(), "Client data did not match server data for " + option);
+            }
+        }
+
+        server.stop();
+    }
+
+}
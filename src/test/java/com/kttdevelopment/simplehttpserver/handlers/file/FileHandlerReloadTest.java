@@ -0,0 +1,72 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class FileHandlerReloadTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    @Test
+    public final void reloadTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        server.setExecutor(Executors.newCachedThreadPool());
+        final AtomicInteger read      = new AtomicInteger();
+        final FileHandler handler     = new FileHandler(new FileHandlerAdapter() {
+            @Override
+            public final byte[] getBytes(final File file, final byte[] bytes){
+                read.incrementAndGet();
+                try{
+                    Thread.sleep(250); // slow adapter, so requests overlap the reload
+                }catch(final InterruptedException ignored){ }
+                return bytes;
+            }
+
+            @Override
+            public final String getName(final File file){
+                return file.getName();
+            }
+        });
+
+        final File file = new File(dir, "file");
+        Files.write(file.toPath(), "before".getBytes());
+        handler.addFile(file, ByteLoadingOption.MODLOAD);
+        Assertions.assertEquals(1, read.get());
+
+        server.createContext("", handler);
+        server.start();
+
+        Files.write(file.toPath(), "after".getBytes());
+        Assertions.assertTrue(file.setLastModified(file.lastModified() + 2000));
+
+        // concurrent requests for a modified file only read it once
+        final HttpClient client = HttpClient.newHttpClient();
+        final HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + '/' + file.getName())).build();
+        final List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for(int i = 0; i < 10; i++)
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        for(final CompletableFuture<HttpResponse<String>> response : responses){
+            final String body = response.get().body();
+            Assertions.assertTrue(body.equals("before") || body.equals("after"), "Client received neither the previous nor the modified data");
+        }
+        Assertions.assertEquals(2, read.get(), "Modified file should only be read once");
+        Assertions.assertEquals("after", client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).get().body(), "Client data did not match modified server data");
+
+        server.stop();
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class FileHandlerStartupIndexTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    @Test
+    public final void startupIndexTest() throws IOException, InterruptedException, ExecutionException{
+        final File root  = new File(dir, "root");
+        final File index = new File(dir, "index");
+        final File sub   = new File(root, "sub");
+        Assertions.assertTrue(sub.mkdirs() && index.mkdirs());
+
+        final File unchanged = new File(root, "unchanged");
+        final File changed   = new File(sub, "changed");
+        Files.write(unchanged.toPath(), "unchanged".getBytes());
+        Files.write(changed.toPath(), "changed".getBytes());
+
+        final AtomicInteger named = new AtomicInteger(), read = new AtomicInteger();
+        final FileHandlerAdapter adapter = new FileHandlerAdapter() {
+            @Override
+            public final String getName(final File file){
+                named.incrementAndGet();
+                return file.getName();
+            }
+
+            @Override
+            public final byte[] getBytes(final File file, final byte[] bytes){
+                read.incrementAndGet();
+                return bytes;
+            }
+        };
+
+        // first start walks everything
+        {
+            final FileHandler handler = new FileHandler(adapter);
+            handler.setIndexDirectory(index);
+            handler.addDirectory("", root, "", ByteLoadingOption.PRELOAD, true);
+            Assertions.assertEquals(2, named.get());
+            Assertions.assertEquals(2, read.get());
+            Assertions.assertEquals(1, Objects.requireNonNull(index.listFiles()).length, "Index file was not written");
+        }
+
+        Files.write(changed.toPath(), "changed!".getBytes());
+        Assertions.assertTrue(changed.setLastModified(changed.lastModified() + 2000));
+        named.set(0);
+        read.set(0);
+
+        // next start only reads the changed file
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler(adapter);
+        handler.setIndexDirectory(index);
+        handler.addDirectory("", root, "", ByteLoadingOption.PRELOAD, true);
+        Assertions.assertEquals(1, named.get(), "Only the changed file should be named again");
+        Assertions.assertEquals(1, read.get(), "Only the changed file should be read again");
+
+        server.createContext("", handler);
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+        Assertions.assertEquals("unchanged", client.sendAsync(HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + "/unchanged")).build(), HttpResponse.BodyHandlers.ofString()).get().body());
+        Assertions.assertEquals("changed!", client.sendAsync(HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + "/sub/changed")).build(), HttpResponse.BodyHandlers.ofString()).get().body());
+        Assertions.assertEquals(2, read.get(), "Unchanged file should be read when it is first requested");
+
+        server.stop();
+
+        // the index is not shared with a different loading option or context
+        named.set(0);
+        final FileHandler other = new FileHandler(adapter);
+        other.setIndexDirectory(index);
+        other.addDirectory("", root, "", ByteLoadingOption.MODLOAD, true);
+        Assertions.assertEquals(2, named.get(), "Index should not be used for a different loading option");
+        other.addDirectory("other", root, "", ByteLoadingOption.PRELOAD, true);
+        Assertions.assertEquals(4, named.get(), "Index should not be used for a different context");
+        Assertions.assertEquals(3, Objects.requireNonNull(index.listFiles()).length, "Each loading option and context should have its own index file");
+    }
+
+    @Test
+    public final void startupIndexAdapterTest() throws IOException, InterruptedException, ExecutionException{
+        final File root  = new File(dir, "root");
+        final File index = new File(dir, "index");
+        Assertions.assertTrue(root.mkdirs() && index.mkdirs());
+
+        final File file = new File(root, "file");
+        Files.write(file.toPath(), "file".getBytes());
+
+        final int port = 8080;
+        final HttpClient client = HttpClient.newHttpClient();
+        final URI uri = URI.create("http://localhost:" + port + "/file");
+
+        final String etag;
+        {
+            final SimpleHttpServer server = SimpleHttpServer.create(port);
+            final FileHandler handler     = new FileHandler(new SuffixAdapter("1"));
+            handler.setIndexDirectory(index);
+            handler.addDirectory("", root, "", ByteLoadingOption.PRELOAD, true);
+            server.createContext("", handler);
+            server.start();
+
+            etag = client.sendAsync(HttpRequest.newBuilder().uri(uri).build(), HttpResponse.BodyHandlers.discarding()).get().headers().firstValue("ETag").orElseThrow();
+            server.stop();
+        }
+
+        // same adapter class, but it now changes the bytes differently
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler(new SuffixAdapter("2"));
+        handler.setIndexDirectory(index);
+        handler.addDirectory("", root, "", ByteLoadingOption.PRELOAD, true);
+        server.createContext("", handler);
+        server.start();
+
+        final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(uri).header("If-None-Match", etag).build(), HttpResponse.BodyHandlers.ofString()).get();
+        Assertions.assertEquals(200, response.statusCode(), "Indexed ETag should not be used for new bytes");
+        Assertions.assertEquals("file2", response.body());
+        Assertions.assertNotEquals(etag, response.headers().firstValue("ETag").orElse(null));
+
+        server.stop();
+    }
+
+    private static final class SuffixAdapter implements FileHandlerAdapter {
+
+        private final String suffix;
+
+        SuffixAdapter(final String suffix){
+            this.suffix = suffix;
+        }
+
+        @Override
+        public final String getName(final File file){
+            return file.getName();
+        }
+
+        @Override
+        public final byte[] getBytes(final File file, final byte[] bytes){
+            return (new String(bytes) + suffix).getBytes();
+        }
+
+    }
+
+}
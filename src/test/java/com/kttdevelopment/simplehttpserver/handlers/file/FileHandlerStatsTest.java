@@ -0,0 +1,87 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public final class FileHandlerStatsTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    @Test
+    public final void statsTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final long cacheTime = 100;
+        final FileHandler handler     = new FileHandler(new CacheFileAdapter(cacheTime));
+        final FileHandlerStats stats  = handler.getStats();
+
+        final File directory = new File(dir, "dir");
+        Assertions.assertTrue(directory.mkdirs());
+        Files.write(new File(directory, "a").toPath(), "aaaa".getBytes());
+        Files.write(new File(directory, "b").toPath(), "bb".getBytes());
+        final File modload = new File(dir, "modload");
+        Files.write(modload.toPath(), "m".getBytes());
+        final File cacheload = new File(dir, "cacheload");
+        Files.write(cacheload.toPath(), "ccc".getBytes());
+
+        handler.addDirectory("", directory, "dir", ByteLoadingOption.PRELOAD, false);
+        handler.addFile(modload, ByteLoadingOption.MODLOAD);
+        handler.addFile(cacheload, ByteLoadingOption.CACHELOAD);
+
+        final FileHandlerStats dirStats = handler.getStats("dir");
+        Assertions.assertNotNull(dirStats);
+        Assertions.assertNull(handler.getStats("missing"));
+        Assertions.assertEquals(6, dirStats.getResidentBytes());
+        Assertions.assertEquals(7, stats.getResidentBytes());
+        Assertions.assertTrue(stats.getReadTime(TimeUnit.NANOSECONDS) > 0);
+
+        server.createContext("", handler);
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+        final String url = "http://localhost:" + port + '/';
+
+        client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "dir/a")).build(), HttpResponse.BodyHandlers.ofString()).get();
+        client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "dir/b")).build(), HttpResponse.BodyHandlers.ofString()).get();
+        client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + modload.getName())).build(), HttpResponse.BodyHandlers.ofString()).get();
+        Assertions.assertEquals(2, dirStats.getHitCount());
+        Assertions.assertEquals(3, stats.getHitCount());
+
+        // modified
+        Files.write(modload.toPath(), "mm".getBytes());
+        Assertions.assertTrue(modload.setLastModified(modload.lastModified() + 2000));
+        Assertions.assertEquals("mm", client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + modload.getName())).build(), HttpResponse.BodyHandlers.ofString()).get().body());
+        Assertions.assertEquals(1, stats.getReloadCount());
+        Assertions.assertEquals(8, stats.getResidentBytes());
+
+        // loaded when requested, then expired
+        Assertions.assertEquals("ccc", client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + cacheload.getName())).build(), HttpResponse.BodyHandlers.ofString()).get().body());
+        Assertions.assertEquals(1, stats.getMissCount());
+        Assertions.assertEquals(0, dirStats.getMissCount());
+        Assertions.assertEquals(11, stats.getResidentBytes());
+        Thread.sleep(cacheTime * 5);
+        Assertions.assertEquals(1, stats.getEvictionCount(), "Expired file was not counted as evicted");
+        Assertions.assertEquals(8, stats.getResidentBytes());
+
+        // removed directory releases its bytes
+        handler.removeDirectory("dir");
+        Assertions.assertEquals(0, dirStats.getResidentBytes());
+        Assertions.assertEquals(2, stats.getResidentBytes());
+
+        server.stop();
+    }
+
+}
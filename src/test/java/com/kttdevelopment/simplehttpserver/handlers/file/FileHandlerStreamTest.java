@@ -0,0 +1,87 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class FileHandlerStreamTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    private static final class StreamAdapter implements FileHandlerAdapter, FileStreamAdapter {
+
+        private final AtomicInteger streamed = new AtomicInteger();
+
+        private final FileStreamAdapter pipeline = FileStreamAdapter.pipeline(
+            (file, OUT) -> new FilterOutputStream(OUT){ // uppercase
+                @Override
+                public final void write(final int b) throws IOException{
+                    out.write(Character.toUpperCase(b));
+                }
+            },
+            (file, OUT) -> { // header
+                OUT.write("# ".getBytes());
+                return OUT;
+            }
+        );
+
+        @Override
+        public final String getName(final File file){
+            return file.getName();
+        }
+
+        @Override
+        public final OutputStream getOutputStream(final File file, final OutputStream OUT) throws IOException{
+            streamed.incrementAndGet();
+            return pipeline.getOutputStream(file, OUT);
+        }
+
+    }
+
+    @Test
+    public final void streamTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final StreamAdapter adapter   = new StreamAdapter();
+        final FileHandler handler     = new FileHandler(adapter);
+
+        final File live = new File(dir, "live");
+        Files.write(live.toPath(), "live".getBytes());
+        handler.addFile(live, ByteLoadingOption.LIVELOAD);
+        final File preload = new File(dir, "preload");
+        Files.write(preload.toPath(), "preload".getBytes());
+        handler.addFile(preload, ByteLoadingOption.PRELOAD);
+        Assertions.assertEquals(1, adapter.streamed.get());
+
+        server.createContext("", handler);
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+        final String url = "http://localhost:" + port + '/';
+
+        // streamed into the response on each request
+        for(int i = 1; i <= 2; i++){
+            Assertions.assertEquals("# LIVE", client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + live.getName())).build(), HttpResponse.BodyHandlers.ofString()).get().body(), "Client data did not match streamed server data");
+            Assertions.assertEquals(1 + i, adapter.streamed.get());
+        }
+
+        // transformed once when loaded
+        for(int i = 0; i < 2; i++)
+            Assertions.assertEquals("# PRELOAD", client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + preload.getName())).build(), HttpResponse.BodyHandlers.ofString()).get().body(), "Client data did not match transformed server data");
+        Assertions.assertEquals(3, adapter.streamed.get(), "Loaded file should only be transformed once");
+
+        server.stop();
+    }
+
+}
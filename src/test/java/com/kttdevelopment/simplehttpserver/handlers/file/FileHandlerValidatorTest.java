@@ -0,0 +1,152 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpExchange;
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.ByteLoadingOption;
+import com.kttdevelopment.simplehttpserver.handler.FileHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+public final class FileHandlerValidatorTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    @Test
+    public final void validatorTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler();
+        final String context          = "";
+
+        final String testContent = String.valueOf(System.currentTimeMillis());
+
+        for(final ByteLoadingOption option : new ByteLoadingOption[]{ByteLoadingOption.PRELOAD, ByteLoadingOption.MODLOAD, ByteLoadingOption.LIVELOAD}){
+            final File file = new File(dir, option.name());
+            Files.write(file.toPath(), testContent.getBytes());
+            handler.addFile(file, option);
+        }
+
+        server.createContext(context, handler);
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+
+        for(final ByteLoadingOption option : new ByteLoadingOption[]{ByteLoadingOption.PRELOAD, ByteLoadingOption.MODLOAD, ByteLoadingOption.LIVELOAD}){
+            final String url = "http://localhost:" + port + context + '/' + option.name();
+
+            final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString()).get();
+            final String etag = response.headers().firstValue("ETag").orElse(null);
+            final String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+
+            Assertions.assertEquals(200, response.statusCode(), "Client did not receive full response for " + option);
+            Assertions.assertNotNull(etag, "Response is missing ETag for " + option);
+            Assertions.assertNotNull(lastModified, "Response is missing Last-Modified for " + option);
+            Assertions.assertEquals(option == ByteLoadingOption.LIVELOAD, etag.startsWith("W/"), "Only live loaded files should have weak ETags for " + option);
+
+            // if-none-match
+            {
+                final HttpResponse<String> matches = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).header("If-None-Match", "\"other\", " + etag).build(), HttpResponse.BodyHandlers.ofString()).get();
+                Assertions.assertEquals(304, matches.statusCode(), "Client did not receive not modified for matching If-None-Match for " + option);
+                Assertions.assertEquals(etag, matches.headers().firstValue("ETag").orElse(null), "Not modified response did not have ETag for " + option);
+                Assertions.assertEquals("", matches.body(), "Not modified response should not have a body for " + option);
+
+                final HttpResponse<String> other = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).header("If-None-Match", "\"other\"").header("If-Modified-Since", lastModified).build(), HttpResponse.BodyHandlers.ofString()).get();
+                Assertions.assertEquals(200, other.statusCode(), "If-None-Match should take precedence over If-Modified-Since for " + option);
+                Assertions.assertEquals(testContent, other.body(), "Client data did not match server data for " + option);
+            }
+
+            // if-modified-since
+            {
+                final HttpResponse<String> matches = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).header("If-Modified-Since", lastModified).build(), HttpResponse.BodyHandlers.ofString()).get();
+                Assertions.assertEquals(304, matches.statusCode(), "Client did not receive not modified for If-Modified-Since for " + option);
+
+                final HttpResponse<String> older = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).header("If-Modified-Since", "Thu, 01 Jan 1970 00:00:00 GMT").build(), HttpResponse.BodyHandlers.ofString()).get();
+                Assertions.assertEquals(200, older.statusCode(), "Client did not receive full response for older If-Modified-Since for " + option);
+            }
+
+            // if-range with entity tag
+            if(option != ByteLoadingOption.LIVELOAD){
+                final HttpResponse<String> matches = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).header("Range", "bytes=0-0").header("If-Range", etag).build(), HttpResponse.BodyHandlers.ofString()).get();
+                Assertions.assertEquals(206, matches.statusCode(), "Client did not receive partial response for matching If-Range for " + option);
+            }
+
+            // modified
+            if(option != ByteLoadingOption.PRELOAD){
+                final File file = new File(dir, option.name());
+                Files.write(file.toPath(), (testContent + "!").getBytes());
+                Assertions.assertTrue(file.setLastModified(file.lastModified() + 2000), "Failed to update last modified for " + option);
+
+                final HttpResponse<String> modified = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url)).header("If-None-Match", etag).build(), HttpResponse.BodyHandlers.ofString()).get();
+                Assertions.assertEquals(200, modified.statusCode(), "Client did not receive full response for modified file for " + option);
+                Assertions.assertNotEquals(etag, modified.headers().firstValue("ETag").orElse(null), "ETag did not change for modified file for " + option);
+                Assertions.assertEquals(testContent + "!", modified.body(), "Client data did not match modified server data for " + option);
+            }
+        }
+
+        server.stop();
+    }
+
+    @Test
+    public final void lastModifiedFormatTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler();
+
+        final File file = new File(dir, "file");
+        Files.write(file.toPath(), "content".getBytes());
+        Assertions.assertTrue(file.setLastModified(784111777000L)); // Sun, 06 Nov 1994 08:49:37 GMT
+        handler.addFile(file);
+
+        server.createContext("", handler);
+        server.start();
+
+        final HttpResponse<String> response = HttpClient.newHttpClient().sendAsync(HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + '/' + file.getName())).build(), HttpResponse.BodyHandlers.ofString()).get();
+        Assertions.assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", response.headers().firstValue("Last-Modified").orElse(null), "Last-Modified should have a two digit day");
+
+        server.stop();
+    }
+
+    @Test
+    public final void overriddenHandleTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler(){
+            @Override
+            public final void handle(final SimpleHttpExchange exchange, final File source, final byte[] bytes) throws IOException{
+                exchange.send(HttpURLConnection.HTTP_FORBIDDEN);
+            }
+        };
+
+        for(final ByteLoadingOption option : new ByteLoadingOption[]{ByteLoadingOption.PRELOAD, ByteLoadingOption.LIVELOAD}){
+            final File file = new File(dir, option.name());
+            Files.write(file.toPath(), "content".getBytes());
+            handler.addFile(file, option);
+        }
+
+        server.createContext("", handler);
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+
+        for(final ByteLoadingOption option : new ByteLoadingOption[]{ByteLoadingOption.PRELOAD, ByteLoadingOption.LIVELOAD}){
+            final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + '/' + option.name())).header("If-Modified-Since", "Fri, 01 Jan 2100 00:00:00 GMT").build(), HttpResponse.BodyHandlers.ofString()).get();
+            Assertions.assertEquals(403, response.statusCode(), "Overridden handle should decide the response for " + option);
+            Assertions.assertTrue(response.headers().firstValue("ETag").isEmpty(), "Overridden handle should not get an ETag for " + option);
+            Assertions.assertTrue(response.headers().firstValue("Last-Modified").isEmpty(), "Overridden handle should not get a Last-Modified for " + option);
+        }
+
+        server.stop();
+    }
+
+}
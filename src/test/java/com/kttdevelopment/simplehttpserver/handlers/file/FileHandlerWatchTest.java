@@ -0,0 +1,131 @@
+package com.kttdevelopment.simplehttpserver.handlers.file;
+
+import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.handler.ByteLoadingOption;
+import com.kttdevelopment.simplehttpserver.handler.FileHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+public final class FileHandlerWatchTest {
+
+    @TempDir
+    public final File dir = new File(UUID.randomUUID().toString());
+
+    @Test
+    public final void watchTest() throws IOException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler();
+
+        final File single = new File(dir, "single");
+        final File watched = new File(dir, "watched");
+        final File subdir  = new File(watched, "sub");
+        Assertions.assertTrue(subdir.mkdirs());
+
+        final File file = new File(subdir, "file");
+        Files.write(single.toPath(), "single".getBytes());
+        Files.write(file.toPath(), "file".getBytes());
+
+        handler.addFile(single, ByteLoadingOption.WATCHLOAD);
+        handler.addDirectory(watched, ByteLoadingOption.WATCHLOAD, true);
+
+        server.createContext("", handler);
+        server.start();
+
+        Assertions.assertEquals("single", get(port, "single"));
+        Assertions.assertEquals("file", get(port, "watched/sub/file"));
+
+        // modified
+        Files.write(single.toPath(), "single!".getBytes());
+        Files.write(file.toPath(), "file!".getBytes());
+        Assertions.assertEquals("single!", await(port, "single", "single!"), "Watched file was not read again after it was modified");
+        Assertions.assertEquals("file!", await(port, "watched/sub/file", "file!"), "Watched directory file was not read again after it was modified");
+
+        // created
+        final File created = new File(subdir, "created");
+        Files.write(created.toPath(), "created".getBytes());
+        Assertions.assertEquals("created", await(port, "watched/sub/created", "created"), "Created file was not added to watched directory");
+
+        final File createdDir = new File(watched, "new");
+        Assertions.assertTrue(createdDir.mkdir());
+        Files.write(new File(createdDir, "file").toPath(), "new".getBytes());
+        Assertions.assertEquals("new", await(port, "watched/new/file", "new"), "File in created directory was not added to watched directory");
+
+        // deleted
+        Assertions.assertTrue(created.delete());
+        Assertions.assertNull(await(port, "watched/sub/created", null), "Deleted file was not removed from watched directory");
+
+        handler.removeDirectory(watched);
+        handler.removeFile(single);
+        server.stop();
+    }
+
+    @Test
+    public final void relativeWatchTest() throws IOException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final FileHandler handler     = new FileHandler();
+
+        final File watched = new File(dir, "watched");
+        Assertions.assertTrue(watched.mkdir());
+        final File file = new File(watched, "file");
+        Files.write(file.toPath(), "file".getBytes());
+
+        // directory is watched first, through a relative path
+        final File relative = Paths.get("").toAbsolutePath().relativize(watched.toPath().toAbsolutePath()).toFile();
+        handler.addDirectory(relative, ByteLoadingOption.WATCHLOAD);
+        handler.addFile(file.getAbsoluteFile(), ByteLoadingOption.WATCHLOAD);
+
+        server.createContext("", handler);
+        server.start();
+
+        Assertions.assertEquals("file", get(port, "file"));
+        Assertions.assertEquals("file", get(port, "watched/file"));
+
+        Files.write(file.toPath(), "file!".getBytes());
+        Assertions.assertEquals("file!", await(port, "file", "file!"), "Watched file was not read again when its directory was watched through a relative path");
+        Assertions.assertEquals("file!", await(port, "watched/file", "file!"), "Watched directory file was not read again when the directory is relative");
+
+        handler.removeDirectory(relative);
+        handler.removeFile(file.getAbsoluteFile());
+        server.stop();
+    }
+
+    // waits for the watcher to see a change
+    private static String await(final int port, final String path, final String expected) throws InterruptedException{
+        String response = null;
+        for(int i = 0; i < 50; i++){
+            response = get(port, path);
+            if(Objects.equals(expected, response))
+                break;
+            Thread.sleep(100);
+        }
+        return response;
+    }
+
+    private static String get(final int port, final String path) throws InterruptedException{
+        final HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create("http://localhost:" + port + '/' + path))
+            .build();
+        try{
+            return HttpClient.newHttpClient()
+                .sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(HttpResponse::body)
+                .get();
+        }catch(final ExecutionException ignored){
+            return null;
+        }
+    }
+
+}
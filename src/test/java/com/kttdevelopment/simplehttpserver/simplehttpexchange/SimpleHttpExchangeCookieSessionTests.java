@@ -63,4 +63,51 @@ public final class SimpleHttpExchangeCookieSessionTests {
         server.stop();
     }
 
+    @Test
+    public final void testCookies() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final AtomicReference<SimpleHttpExchange> exchangeRef = new AtomicReference<>();
+        final SimpleHttpHandler handler = exchange -> {
+            exchangeRef.set(exchange);
+            exchange.send(exchange.toString());
+        };
+
+        final String context = "";
+        server.createContext(context, handler);
+        final String cookie = "__session-id";
+        server.setHttpSessionHandler(new HttpSessionHandler(cookie));
+        server.start();
+
+        final String url = "http://localhost:" + port + context;
+
+        final HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .header("Cookie", "token=YWJj==; " + cookie + "=unknown;flag; empty=")
+            .build();
+
+        HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.discarding()).get();
+
+        // exchange
+
+        final SimpleHttpExchange exchange = exchangeRef.get();
+
+        Assertions.assertEquals("YWJj==", exchange.getCookies().get("token"), "Exchange cookie containing '=' did not match client cookie");
+        Assertions.assertEquals("unknown", exchange.getCookies().get(cookie), "Exchange cookie without a space did not match client cookie");
+        Assertions.assertEquals("", exchange.getCookies().get("empty"), "Exchange empty cookie did not match client cookie");
+        Assertions.assertFalse(exchange.getCookies().containsKey("flag"), "Exchange cookies should not contain a cookie without a value");
+        Assertions.assertNotEquals("unknown", server.getHttpSession(exchange).getSessionID(), "Client with an unknown session id should be assigned a new session");
+
+        final String sessionId = server.getHttpSession(exchange).getSessionID();
+        HttpClient.newHttpClient().sendAsync(HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .header("Cookie", "token=YWJj==;" + cookie + "=" + sessionId)
+            .build(), HttpResponse.BodyHandlers.discarding()).get();
+
+        Assertions.assertEquals(sessionId, server.getHttpSession(exchangeRef.get()).getSessionID(), "Client with a known session id should keep its session");
+
+        server.stop();
+    }
+
 }
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.*;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -52,6 +53,45 @@ public final class SimpleHttpExchangeGetTest {
         Assertions.assertTrue(exchange.hasGet(), "Exchange was missing client GET map");
         Assertions.assertEquals(queryValue, exchange.getGetMap().get(queryKey), "Exchange GET did not match client GET");
         Assertions.assertEquals(altValueRaw, exchange.getGetMap().get(altKey), "Exchange GET did not match client GET");
+
+        server.stop();
+    }
+
+    @Test
+    public final void getRepeated() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final AtomicReference<SimpleHttpExchange> exchangeRef = new AtomicReference<>();
+        final SimpleHttpHandler handler = exchange -> {
+            exchangeRef.set(exchange);
+            exchange.send(exchange.toString());
+        };
+
+        final String context = "";
+        server.createContext(context, handler);
+        server.start();
+
+        final String url = "http://localhost:" + port + context + "?key=a&eq=x%3Dy=z&key=b&empty=&flag&key=c";
+
+        final HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .GET()
+            .build();
+
+        HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.discarding()).get();
+
+        final SimpleHttpExchange exchange = exchangeRef.get();
+
+        Assertions.assertEquals(List.of("a", "b", "c"), exchange.getGetValues("key"), "Exchange GET values did not match repeated client GET");
+        Assertions.assertEquals("c", exchange.getGetMap().get("key"), "Exchange GET did not return last repeated client GET");
+        Assertions.assertEquals("x=y=z", exchange.getGetMap().get("eq"), "Exchange GET value containing '=' did not match client GET");
+        Assertions.assertEquals("", exchange.getGetMap().get("empty"), "Exchange GET empty value did not match client GET");
+        Assertions.assertFalse(exchange.getGetMap().containsKey("flag"), "Exchange GET should not contain keys without a value");
+        Assertions.assertEquals(List.of(), exchange.getGetValues("missing"), "Exchange GET values should be empty for a missing key");
+        Assertions.assertEquals(List.of("key", "eq", "empty"), List.copyOf(exchange.getGetMap().keySet()), "Exchange GET keys did not match client GET order");
+
+        server.stop();
     }
 
 }
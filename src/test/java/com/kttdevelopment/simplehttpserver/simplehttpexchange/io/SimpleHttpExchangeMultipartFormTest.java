@@ -1,12 +1,15 @@
 package com.kttdevelopment.simplehttpserver.simplehttpexchange.io;
 
 import com.kttdevelopment.simplehttpserver.*;
+import com.kttdevelopment.simplehttpserver.Record;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
-import java.io.IOException;
+import java.io.*;
 import java.net.URI;
 import java.net.http.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -23,6 +26,7 @@ public final class SimpleHttpExchangeMultipartFormTest {
         final AtomicReference<String> exchangeResponse = new AtomicReference<>();
         final SimpleHttpHandler handler = exchange -> {
             exchangeRef.set(exchange);
+            exchange.getPostMap(); // request body is read on first use, so it must be read before the exchange is closed
             exchangeResponse.set(exchange.toString());
             exchange.send(exchange.toString());
         };
@@ -31,7 +35,7 @@ public final class SimpleHttpExchangeMultipartFormTest {
         server.createContext(context, handler);
         server.start();
 
-        final String boundary = "d74496d66958873e";
+        final String boundary = "------------------------d74496d66958873e";
 
         final String url = "http://localhost:" + port + context ;
 
@@ -39,15 +43,15 @@ public final class SimpleHttpExchangeMultipartFormTest {
         final String fkey = "fileKey", filename = "fileName.txt", fvalue = "fileValue", contentType = "text/plain";
 
         final StringBuilder OUT = new StringBuilder();
-        OUT.append("--------------------------").append(boundary).append("\r\n");
+        OUT.append("--").append(boundary).append("\r\n");
         OUT.append("Content-Disposition: ").append("form-data; ").append("name=\"").append(key).append('\"').append("\r\n\r\n");
         OUT.append(value).append("\r\n");
-        OUT.append("--------------------------").append(boundary).append("\r\n");
+        OUT.append("--").append(boundary).append("\r\n");
         OUT.append("Content-Disposition: ").append("form-data; ").append("name=\"").append(fkey).append("\"; ");
         OUT.append("filename=\"").append(filename).append('\"').append("\r\n");
         OUT.append("Content-Type: ").append(contentType).append("\r\n\r\n");
         OUT.append(fvalue).append("\r\n");
-        OUT.append("--------------------------").append(boundary).append("--");
+        OUT.append("--").append(boundary).append("--");
 
         final HttpRequest request = HttpRequest.newBuilder()
             .uri(URI.create(url))
@@ -81,4 +85,195 @@ public final class SimpleHttpExchangeMultipartFormTest {
         server.stop();
     }
 
+    @SuppressWarnings("SpellCheckingInspection")
+    @Test
+    public final void postMultipartFormDataBinary() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final AtomicReference<SimpleHttpExchange> exchangeRef = new AtomicReference<>();
+        final SimpleHttpHandler handler = exchange -> {
+            exchangeRef.set(exchange);
+            exchange.setMultipartMemoryThreshold(Long.MAX_VALUE);
+            exchange.getMultipartFormData();
+            exchange.send(String.valueOf(exchange.hasPost()));
+        };
+
+        final String context = "";
+        server.createContext(context, handler);
+        server.start();
+
+        final String boundary = "d74496d66958873e";
+
+        final String url = "http://localhost:" + port + context ;
+
+        final String fkey = "fileKey", filename = "fileName.bin", contentType = "application/octet-stream";
+        final byte[] fvalue = new byte[20 * 1024]; // larger than the parser buffer
+        for(int i = 0; i < fvalue.length; i++)
+            fvalue[i] = (byte) i;
+        fvalue[100] = '\r'; fvalue[101] = '\n'; fvalue[102] = '-'; fvalue[103] = '-'; // partial delimiter
+
+        final String skey = "smallKey", svalue = "small", lkey = "largeKey", lvalue = "large".repeat(1024);
+
+        final ByteArrayOutputStream OUT = new ByteArrayOutputStream();
+        OUT.write(("--" + boundary + "\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(("Content-Disposition: form-data; name=\"" + fkey + "\"; filename=\"" + filename + "\"\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(("Content-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(fvalue);
+        OUT.write(("\r\n--" + boundary + "\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(("Content-Disposition: form-data; name=\"" + skey + "\"\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(svalue.getBytes(StandardCharsets.UTF_8));
+        OUT.write(("\r\n--" + boundary + "\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(("Content-Disposition: form-data; name=\"" + lkey + "\"\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(lvalue.getBytes(StandardCharsets.UTF_8));
+        OUT.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        final HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .header("Content-type","multipart/form-data; boundary=\"" + boundary + '"')
+            .POST(HttpRequest.BodyPublishers.ofByteArray(OUT.toByteArray()))
+            .build();
+
+        HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.discarding()).get();
+
+        final FileRecord record = (FileRecord) exchangeRef.get().getMultipartFormData().getRecord(fkey);
+
+        Assertions.assertEquals(filename, record.getFileName(), "Client file name did not match server value");
+        Assertions.assertEquals(contentType, record.getContentType(), "Client content-type did not match server value");
+        Assertions.assertTrue(record.isInMemory(), "File smaller than the memory threshold should be kept in memory");
+        Assertions.assertArrayEquals(fvalue, record.getBytes(), "Client binary file did not match server value");
+
+        server.stop();
+    }
+
+    @SuppressWarnings("SpellCheckingInspection")
+    @Test
+    public final void postMultipartFormDataTemporaryFile() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final AtomicReference<SimpleHttpExchange> exchangeRef = new AtomicReference<>();
+        final SimpleHttpHandler handler = exchange -> {
+            exchangeRef.set(exchange);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> exchange.setMultipartMemoryThreshold(-1));
+            exchange.setMultipartMemoryThreshold(1024);
+            exchange.getMultipartFormData();
+            exchange.send(String.valueOf(exchange.hasPost()));
+        };
+
+        final String context = "";
+        server.createContext(context, handler);
+        server.start();
+
+        final String boundary = "d74496d66958873e";
+
+        final String url = "http://localhost:" + port + context ;
+
+        final String fkey = "fileKey", filename = "fileName.bin", contentType = "application/octet-stream";
+        final byte[] fvalue = new byte[4 * 1024];
+        for(int i = 0; i < fvalue.length; i++)
+            fvalue[i] = (byte) i;
+
+        final String skey = "smallKey", svalue = "small", lkey = "largeKey", lvalue = "large".repeat(1024);
+
+        final ByteArrayOutputStream OUT = new ByteArrayOutputStream();
+        OUT.write(("--" + boundary + "\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(("Content-Disposition: form-data; name=\"" + fkey + "\"; filename=\"" + filename + "\"\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(("Content-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(fvalue);
+        OUT.write(("\r\n--" + boundary + "\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(("Content-Disposition: form-data; name=\"" + skey + "\"\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(svalue.getBytes(StandardCharsets.UTF_8));
+        OUT.write(("\r\n--" + boundary + "\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(("Content-Disposition: form-data; name=\"" + lkey + "\"\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        OUT.write(lvalue.getBytes(StandardCharsets.UTF_8));
+        OUT.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        final HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .header("Content-type","multipart/form-data; boundary=" + boundary)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(OUT.toByteArray()))
+            .build();
+
+        HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.discarding()).get();
+
+        final SimpleHttpExchange exchange = exchangeRef.get();
+        final FileRecord record = (FileRecord) exchange.getMultipartFormData().getRecord(fkey);
+
+        Assertions.assertFalse(record.isInMemory(), "File larger than the memory threshold should be written to a temporary file");
+        Assertions.assertEquals(fvalue.length, record.getSize(), "Temporary file size did not match client file size");
+        Assertions.assertArrayEquals(fvalue, record.getBytes(), "Temporary file did not match client file");
+        try(final InputStream IN = record.getInputStream()){
+            Assertions.assertArrayEquals(fvalue, IN.readAllBytes(), "Temporary file stream did not match client file");
+        }
+        Assertions.assertTrue(Files.exists(record.getPath()), "Temporary file should exist until the exchange is closed");
+
+        final Record small = exchange.getMultipartFormData().getRecord(skey);
+        Assertions.assertFalse(small instanceof FileRecord, "Input smaller than the memory threshold should be kept in memory");
+        Assertions.assertEquals(svalue, small.getValue(), "Input value did not match client value");
+
+        final FileRecord large = (FileRecord) exchange.getMultipartFormData().getRecord(lkey);
+        Assertions.assertFalse(large.isInMemory(), "Input larger than the memory threshold should be written to a temporary file");
+        Assertions.assertNull(large.getFileName(), "Input without a file name should not have a file name");
+        Assertions.assertEquals(lvalue, large.getValue(), "Temporary input did not match client value");
+
+        final Map<?,?> row = (Map<?,?>) exchange.getPostMap().get(fkey);
+        Assertions.assertSame(record, row.get("record"), "Post map should reference the file record");
+        Assertions.assertEquals((long) fvalue.length, row.get("size"), "Post map file size did not match client file size");
+        Assertions.assertFalse(row.containsKey("value"), "Post map should not read a temporary file");
+
+        exchange.close();
+        Assertions.assertFalse(Files.exists(record.getPath()), "Temporary file should be deleted when the exchange is closed");
+        Assertions.assertFalse(Files.exists(large.getPath()), "Temporary input should be deleted when the exchange is closed");
+        Assertions.assertDoesNotThrow(exchange::toString, "Exchange should not read temporary files after it is closed");
+
+        server.stop();
+    }
+
+    @SuppressWarnings("SpellCheckingInspection")
+    @Test
+    public final void postMultipartFormDataWithoutCloseDelimiter() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final AtomicReference<SimpleHttpExchange> exchangeRef = new AtomicReference<>();
+        final SimpleHttpHandler handler = exchange -> {
+            exchangeRef.set(exchange);
+            exchange.setMultipartMemoryThreshold(20); // ends inside the bytes held back for a possible delimiter
+            exchange.getMultipartFormData();
+            exchange.send(String.valueOf(exchange.hasPost()));
+        };
+
+        final String context = "";
+        server.createContext(context, handler);
+        server.start();
+
+        final String boundary = "d74496d66958873e";
+
+        final String url = "http://localhost:" + port + context ;
+
+        final String fkey = "fileKey", filename = "fileName.txt", fvalue = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+        final StringBuilder OUT = new StringBuilder();
+        OUT.append("--").append(boundary).append("\r\n");
+        OUT.append("Content-Disposition: form-data; name=\"").append(fkey).append("\"; filename=\"").append(filename).append("\"\r\n\r\n");
+        OUT.append(fvalue);
+
+        final HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .header("Content-type","multipart/form-data; boundary=" + boundary)
+            .POST(HttpRequest.BodyPublishers.ofString(OUT.toString()))
+            .build();
+
+        HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.discarding()).get();
+
+        final SimpleHttpExchange exchange = exchangeRef.get();
+        final FileRecord record = (FileRecord) exchange.getMultipartFormData().getRecord(fkey);
+
+        Assertions.assertArrayEquals(fvalue.getBytes(StandardCharsets.UTF_8), record.getBytes(), "File without a close delimiter did not match client file");
+
+        exchange.close();
+        server.stop();
+    }
+
 }
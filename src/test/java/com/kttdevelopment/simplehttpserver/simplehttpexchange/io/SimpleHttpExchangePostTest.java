@@ -22,6 +22,7 @@ public final class SimpleHttpExchangePostTest {
         final AtomicReference<String> exchangeResponse = new AtomicReference<>();
         final SimpleHttpHandler handler = exchange -> {
             exchangeRef.set(exchange);
+            exchange.getPostMap(); // request body is read on first use, so it must be read before the exchange is closed
             exchangeResponse.set(exchange.toString());
             exchange.send(exchange.toString());
         };
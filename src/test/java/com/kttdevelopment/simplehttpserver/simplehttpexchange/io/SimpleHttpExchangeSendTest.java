@@ -1,19 +1,19 @@
 package com.kttdevelopment.simplehttpserver.simplehttpexchange.io;
 
-import com.kttdevelopment.simplehttpserver.SimpleHttpHandler;
-import com.kttdevelopment.simplehttpserver.SimpleHttpServer;
+import com.kttdevelopment.simplehttpserver.*;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.http.*;
 import java.nio.file.Files;
+import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.zip.*;
 
 @SuppressWarnings("OptionalGetWithoutIsPresent")
 public class SimpleHttpExchangeSendTest {
@@ -29,20 +29,23 @@ public class SimpleHttpExchangeSendTest {
 
         final int testCode = HttpURLConnection.HTTP_ACCEPTED;
         final String testContent = String.valueOf(System.currentTimeMillis());
+        final String gzipContent = testContent.repeat(1024); // larger than the minimum compression size
 
         server.createContext("code", (SimpleHttpHandler) exchange -> {
             exchange.send(testCode);
             exchange.close();
         });
         server.createContext("bytes", (SimpleHttpHandler) exchange -> exchange.send(testContent.getBytes()));
-        server.createContext("bytes/gzip", (SimpleHttpHandler) exchange -> exchange.send(testContent.getBytes(), true));
+        server.createContext("bytes/gzip", (SimpleHttpHandler) exchange -> exchange.send(gzipContent.getBytes(), true));
         server.createContext("string", (SimpleHttpHandler) exchange -> exchange.send(testContent));
-        server.createContext("string/gzip", (SimpleHttpHandler) exchange -> exchange.send(testContent, true));
+        server.createContext("string/gzip", (SimpleHttpHandler) exchange -> exchange.send(gzipContent, true));
 
         final File testFile = new File(dir, UUID.randomUUID().toString());
         Files.write(testFile.toPath(), testContent.getBytes());
         server.createContext("file", (SimpleHttpHandler) exchange -> exchange.send(testFile));
-        server.createContext("file/gzip", (SimpleHttpHandler) exchange -> exchange.send(testFile, true));
+        final File gzipFile = new File(dir, UUID.randomUUID().toString());
+        Files.write(gzipFile.toPath(), gzipContent.getBytes());
+        server.createContext("file/gzip", (SimpleHttpHandler) exchange -> exchange.send(gzipFile, true));
 
         server.start();
 
@@ -93,6 +96,7 @@ public class SimpleHttpExchangeSendTest {
                     .sendAsync(request, HttpResponse.BodyHandlers.ofString())
                     .thenApply(HttpResponse::headers).get();
                 Assertions.assertEquals("gzip", response.firstValue("Content-Encoding").get(), "Client data did not match server data for " + url);
+                Assertions.assertEquals("Accept-Encoding", response.firstValue("Vary").get(), "Compressed response is missing Vary header for " + url);
             }catch(final InterruptedException | ExecutionException ignored){
                 Assertions.fail("Failed to read context for " + url);
             }
@@ -128,6 +132,7 @@ public class SimpleHttpExchangeSendTest {
                     .sendAsync(request, HttpResponse.BodyHandlers.ofString())
                     .thenApply(HttpResponse::headers).get();
                 Assertions.assertEquals("gzip", response.firstValue("Content-Encoding").get(), "Client data did not match server data for " + url);
+                Assertions.assertEquals("Accept-Encoding", response.firstValue("Vary").get(), "Compressed response is missing Vary header for " + url);
             }catch(final InterruptedException | ExecutionException ignored){
                 Assertions.fail("Failed to read context for " + url);
             }
@@ -154,6 +159,7 @@ public class SimpleHttpExchangeSendTest {
         {
             final String url = "http://localhost:" + port + context + '/' + "file" + '/' + "gzip";
             final HttpRequest request = HttpRequest.newBuilder()
+               .header("Accept-Encoding","deflate, gzip")
                .uri(URI.create(url))
                .build();
 
@@ -162,6 +168,7 @@ public class SimpleHttpExchangeSendTest {
                     .sendAsync(request, HttpResponse.BodyHandlers.ofString())
                     .thenApply(HttpResponse::headers).get();
                 Assertions.assertEquals("gzip", response.firstValue("Content-Encoding").get(), "Client data did not match server data for " + url);
+                Assertions.assertEquals("Accept-Encoding", response.firstValue("Vary").get(), "Compressed response is missing Vary header for " + url);
             }catch(final InterruptedException | ExecutionException ignored){
                 Assertions.fail("Failed to read context for " + url);
             }
@@ -170,4 +177,132 @@ public class SimpleHttpExchangeSendTest {
         server.stop();
     }
 
+    @Test
+    public final void sendCompressionTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final String context          = "";
+
+        final String content = "{\"key\":\"value\"}".repeat(256);
+
+        server.createContext("json", (SimpleHttpHandler) exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.send(content, true);
+        });
+        server.createContext("small", (SimpleHttpHandler) exchange -> exchange.send("{}", true));
+        server.createContext("image", (SimpleHttpHandler) exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "image/png");
+            exchange.send(content, true);
+        });
+        server.createContext("level", (SimpleHttpHandler) exchange -> {
+            exchange.setResponseCompression(new ResponseCompression.Builder().setMinimumSize(0).setCompressionLevel(Deflater.BEST_SPEED).build());
+            exchange.send(content, true);
+        });
+
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+        final String url = "http://localhost:" + port + context + '/';
+
+        // gzip
+        {
+            final HttpResponse<byte[]> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "json")).header("Accept-Encoding", "deflate, gzip").build(), HttpResponse.BodyHandlers.ofByteArray()).get();
+            Assertions.assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null), "Server did not prefer gzip when both encodings are accepted");
+            Assertions.assertEquals(String.valueOf(response.body().length), response.headers().firstValue("Content-Length").orElse(null), "Compressed response should have a fixed length");
+            Assertions.assertEquals(content, new String(new GZIPInputStream(new ByteArrayInputStream(response.body())).readAllBytes()), "Client data did not match server data after gzip decompression");
+        }
+
+        // deflate by q-value
+        {
+            final HttpResponse<byte[]> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "json")).header("Accept-Encoding", "gzip;q=0.5, deflate").build(), HttpResponse.BodyHandlers.ofByteArray()).get();
+            Assertions.assertEquals("deflate", response.headers().firstValue("Content-Encoding").orElse(null), "Server did not pick the encoding with the highest q-value");
+            Assertions.assertEquals(content, new String(new InflaterInputStream(new ByteArrayInputStream(response.body())).readAllBytes()), "Client data did not match server data after deflate decompression");
+        }
+
+        // not accepted
+        {
+            final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "json")).header("Accept-Encoding", "identity, gzip;q=0, *;q=0").build(), HttpResponse.BodyHandlers.ofString()).get();
+            Assertions.assertTrue(response.headers().firstValue("Content-Encoding").isEmpty(), "Server compressed a response the client did not accept");
+            Assertions.assertEquals("Accept-Encoding", response.headers().firstValue("Vary").orElse(null), "Negotiated response is missing Vary header");
+            Assertions.assertEquals(content, response.body(), "Client data did not match server data");
+        }
+
+        // no accept encoding
+        {
+            final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "json")).build(), HttpResponse.BodyHandlers.ofString()).get();
+            Assertions.assertTrue(response.headers().firstValue("Content-Encoding").isEmpty(), "Server compressed a response for a client without Accept-Encoding");
+            Assertions.assertEquals(content, response.body(), "Client data did not match server data");
+        }
+
+        // below minimum size
+        {
+            final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "small")).header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofString()).get();
+            Assertions.assertTrue(response.headers().firstValue("Content-Encoding").isEmpty(), "Server compressed a response smaller than the minimum size");
+            Assertions.assertEquals("{}", response.body(), "Client data did not match server data");
+        }
+
+        // not compressible
+        {
+            final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "image")).header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofString()).get();
+            Assertions.assertTrue(response.headers().firstValue("Content-Encoding").isEmpty(), "Server compressed a content type that is not compressible");
+        }
+
+        // custom compression
+        {
+            final HttpResponse<byte[]> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "level")).header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray()).get();
+            Assertions.assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null), "Server did not compress with custom compression");
+            Assertions.assertEquals(content, new String(new GZIPInputStream(new ByteArrayInputStream(response.body())).readAllBytes()), "Client data did not match server data after gzip decompression");
+        }
+
+        server.stop();
+    }
+
+    @Test
+    public final void sendFileTest() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final String context          = "";
+
+        // larger than a single buffer and not a multiple of the buffer size
+        final byte[] content = new byte[3 * 64 * 1024 + 123];
+        new Random(0).nextBytes(content);
+        final File file = new File(dir, UUID.randomUUID().toString());
+        Files.write(file.toPath(), content);
+
+        final File text = new File(dir, UUID.randomUUID().toString());
+        Files.write(text.toPath(), "text".repeat(1024).getBytes());
+
+        server.createContext("file", (SimpleHttpHandler) exchange -> exchange.send(file));
+        server.createContext("text", (SimpleHttpHandler) exchange -> exchange.send(text, false));
+        server.createContext("text/gzip", (SimpleHttpHandler) exchange -> exchange.send(text, true));
+
+        server.start();
+
+        final HttpClient client = HttpClient.newHttpClient();
+        final String url = "http://localhost:" + port + context + '/';
+
+        // streamed file
+        {
+            final HttpResponse<byte[]> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "file")).build(), HttpResponse.BodyHandlers.ofByteArray()).get();
+            Assertions.assertEquals(String.valueOf(content.length), response.headers().firstValue("Content-Length").orElse(null), "File response did not have the file length");
+            Assertions.assertArrayEquals(content, response.body(), "Client data did not match server file");
+        }
+
+        // uncompressed
+        {
+            final HttpResponse<String> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "text")).header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofString()).get();
+            Assertions.assertTrue(response.headers().firstValue("Content-Encoding").isEmpty(), "File sent without compression was compressed");
+            Assertions.assertEquals("text".repeat(1024), response.body(), "Client data did not match server file");
+        }
+
+        // compressed
+        {
+            final HttpResponse<byte[]> response = client.sendAsync(HttpRequest.newBuilder().uri(URI.create(url + "text/gzip")).header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray()).get();
+            Assertions.assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null), "File sent with compression was not compressed");
+            Assertions.assertEquals("text".repeat(1024), new String(new GZIPInputStream(new ByteArrayInputStream(response.body())).readAllBytes()), "Client data did not match server file after gzip decompression");
+        }
+
+        server.stop();
+    }
+
 }
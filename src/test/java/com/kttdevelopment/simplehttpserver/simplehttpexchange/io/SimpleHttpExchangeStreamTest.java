@@ -0,0 +1,145 @@
+package com.kttdevelopment.simplehttpserver.simplehttpexchange.io;
+
+import com.kttdevelopment.simplehttpserver.*;
+import com.kttdevelopment.simplehttpserver.Record;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+public final class SimpleHttpExchangeStreamTest {
+
+    @Test
+    public final void postPublisher() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final SimpleHttpHandler handler = exchange -> {
+            final ByteArrayOutputStream OUT = new ByteArrayOutputStream();
+            exchange.getRequestBodyPublisher().subscribe(new Flow.Subscriber<>() {
+                @Override
+                public final void onSubscribe(final Flow.Subscription subscription){
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public final void onNext(final ByteBuffer item){
+                    final byte[] bytes = new byte[item.remaining()];
+                    item.get(bytes);
+                    OUT.writeBytes(bytes);
+                }
+
+                @Override
+                public final void onError(final Throwable throwable){ }
+
+                @Override
+                public final void onComplete(){ }
+            });
+            exchange.send(OUT.toByteArray());
+        };
+
+        final String context = "";
+        server.createContext(context, handler);
+        server.start();
+
+        final String url = "http://localhost:" + port + context;
+
+        final byte[] body = new byte[100 * 1024];
+        new Random(0).nextBytes(body);
+
+        final HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+
+        final byte[] response = HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .thenApply(HttpResponse::body).get();
+
+        Assertions.assertArrayEquals(body, response, "Published request body did not match client body");
+
+        server.stop();
+    }
+
+    @SuppressWarnings("SpellCheckingInspection")
+    @Test
+    public final void postFormDataEvents() throws IOException, ExecutionException, InterruptedException{
+        final int port = 8080;
+
+        final SimpleHttpServer server = SimpleHttpServer.create(port);
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final SimpleHttpHandler handler = exchange -> {
+            exchange.readFormData(new FormDataListener() {
+                private final ByteArrayOutputStream OUT = new ByteArrayOutputStream();
+
+                @Override
+                public final void onFieldStart(final String name, final Map<String,Record.Header> headers){
+                    events.add("start:" + name);
+                    OUT.reset();
+                }
+
+                @Override
+                public final void onFieldData(final byte[] data, final int offset, final int length){
+                    OUT.write(data, offset, length);
+                }
+
+                @Override
+                public final void onFieldEnd(){
+                    events.add("end:" + OUT);
+                }
+            });
+            exchange.send(String.valueOf(events));
+        };
+
+        final String context = "";
+        server.createContext(context, handler);
+        server.start();
+
+        final String url = "http://localhost:" + port + context;
+
+        { // x-www-form-urlencoded
+            final HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .POST(HttpRequest.BodyPublishers.ofString("a=1&b%20c=x+y%26z&d="))
+                .build();
+
+            HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.discarding()).get();
+
+            Assertions.assertEquals(List.of("start:a", "end:1", "start:b c", "end:x y&z", "start:d", "end:"), events, "Form events did not match client x-www-form-urlencoded body");
+        }
+
+        events.clear();
+
+        { // multipart/form-data
+            final String boundary = "d74496d66958873e";
+            final String body =
+                "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"key\"\r\n\r\n" +
+                "value\r\n" +
+                "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"fileKey\"; filename=\"fileName.txt\"\r\n" +
+                "Content-Type: text/plain\r\n\r\n" +
+                "fileValue\r\n" +
+                "--" + boundary + "--\r\n";
+
+            final HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Content-type","multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+            HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.discarding()).get();
+
+            Assertions.assertEquals(List.of("start:key", "end:value", "start:fileKey", "end:fileValue"), events, "Form events did not match client multipart/form-data body");
+        }
+
+        server.stop();
+    }
+
+}